@@ -0,0 +1,77 @@
+package com.fitness.activityservice.mapper;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityType;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation (run with -prof gc) of the activity mappings, with the
+ * generated ActivityMapper and with a default ModelMapper as the service used
+ * it before MapStruct (one shared instance, type maps cached after the first call).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityMapperBenchmark {
+
+	private final ActivityMapper activityMapper = Mappers.getMapper(ActivityMapper.class);
+	private final ModelMapper modelMapper = new ModelMapper();
+	private ActivityRequest request;
+	private Activity activity;
+
+	@Setup
+	public void setUp() {
+		request = new ActivityRequest();
+		request.setUserId("user-1");
+		request.setActivityType(ActivityType.RUNNING);
+		request.setDuration(45);
+		request.setCaloriesBurned(520);
+		request.setStartTime(LocalDateTime.of(2025, 3, 1, 7, 0));
+		request.setAdditionalMetrics(Map.of("distanceKm", 7.9, "averageHeartRate", 148));
+
+		activity = activityMapper.toActivity(request);
+		activity.setActivityId("65e1f0a0c0ffee0000000001");
+		activity.setCreatedAt(LocalDateTime.of(2025, 3, 1, 7, 50));
+		activity.setUpdatedAt(LocalDateTime.of(2025, 3, 1, 7, 50));
+	}
+
+	@Benchmark
+	public Activity toActivityMapStruct() {
+		return activityMapper.toActivity(request);
+	}
+
+	@Benchmark
+	public Activity toActivityModelMapper() {
+		return modelMapper.map(request, Activity.class);
+	}
+
+	@Benchmark
+	public ActivityResponse toResponseMapStruct() {
+		return activityMapper.toResponse(activity);
+	}
+
+	@Benchmark
+	public ActivityResponse toResponseModelMapper() {
+		return modelMapper.map(activity, ActivityResponse.class);
+	}
+}
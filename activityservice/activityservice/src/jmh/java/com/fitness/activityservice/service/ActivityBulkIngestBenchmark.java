@@ -0,0 +1,127 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.BulkActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.ActivityType;
+import com.fitness.activityservice.repository.ActivityRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Activities/sec stored from one wearable sync of UPLOAD activities, against the
+ * in-process mongo-java-server (over a local socket, so each round trip counts):
+ *
+ * - singleItems: one POST /trackActivity per activity, i.e. a save (with its
+ *   outbox event) and a stats $inc each
+ * - bulkUpload: POST /trackActivities, the ActivityBulkIngester batches of
+ *   activity.bulk.batch-size (500)
+ *
+ * The user check is off (trusted gateway) in both, so only the writes are compared.
+ * The collections are dropped before every iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityBulkIngestBenchmark {
+
+	private static final int UPLOAD = 500;
+
+	private MongoServer mongoServer;
+	private MongoClient client;
+	private MongoTemplate mongoTemplate;
+	private ActivityServiceimpl activityService;
+	private List<ActivityRequest> upload;
+
+	@Setup
+	public void setUp() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(mongoServer.bindAndGetConnectionString());
+		mongoTemplate = new MongoTemplate(client, "bulk_ingest_benchmark");
+		MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+		ActivityMapper activityMapper = Mappers.getMapper(ActivityMapper.class);
+		ActivityStatsService activityStatsService = new ActivityStatsService(mongoTemplate, activityMapper, 366, false, "", 104);
+		ObjectMapper objectMapper = new ObjectMapper();
+
+		activityService = new ActivityServiceimpl();
+		ReflectionTestUtils.setField(activityService, "activityRepository", repositories.getRepository(ActivityRepository.class));
+		ReflectionTestUtils.setField(activityService, "activityMapper", activityMapper);
+		ReflectionTestUtils.setField(activityService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(activityService, "objectMapper", objectMapper);
+		ReflectionTestUtils.setField(activityService, "activityStatsService", activityStatsService);
+		ReflectionTestUtils.setField(activityService, "activityBulkIngester",
+				new ActivityBulkIngester(mongoTemplate, activityMapper, activityStatsService, objectMapper, 500, 10_000));
+		ReflectionTestUtils.setField(activityService, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(activityService, "trustGateway", true);
+
+		upload = new ArrayList<>(UPLOAD);
+		LocalDateTime start = LocalDateTime.of(2025, 3, 1, 7, 0);
+		for (int i = 0; i < UPLOAD; i++) {
+			ActivityRequest request = new ActivityRequest();
+			request.setUserId("user-1");
+			request.setActivityType(ActivityType.values()[i % ActivityType.values().length]);
+			request.setDuration(20 + i % 60);
+			request.setCaloriesBurned(150 + i % 600);
+			request.setStartTime(start.minusHours(7L * i));
+			upload.add(request);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void dropCollections() {
+		mongoTemplate.getDb().drop();
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+		mongoServer.shutdownNow();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UPLOAD)
+	public int singleItems() {
+		int stored = 0;
+		for (ActivityRequest request : upload) {
+			if (activityService.trackActivity(request).getActivityId() != null) {
+				stored++;
+			}
+		}
+		return stored;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(UPLOAD)
+	public BulkActivityResponse bulkUpload() {
+		return activityService.trackActivities("user-1", upload);
+	}
+}
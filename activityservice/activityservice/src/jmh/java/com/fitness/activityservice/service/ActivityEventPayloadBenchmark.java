@@ -0,0 +1,134 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityEvent;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityType;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events/sec and bytes on the wire of an "activity-events" record, from the value
+ * serializer to the closed producer batch, for the two producer setups:
+ *
+ * - activity-uncompressed: the full Activity document with JSON type headers,
+ *   into the default 16 KB batches without compression (before the compact payload)
+ * - event-lz4: ActivityEvent without type headers, into the 64 KB lz4 batches of
+ *   activityservice-high-throughput.yaml
+ *
+ * The score is events/sec; the wire counter is the size of the closed batches in
+ * bytes/sec, so wire / score is the bytes one event costs on the broker.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ActivityEventPayloadBenchmark {
+
+	private static final String TOPIC = "activity-events";
+
+	@Param({"activity-uncompressed", "event-lz4"})
+	public String payload;
+
+	private final StringSerializer keySerializer = new StringSerializer();
+	private JsonSerializer<Object> valueSerializer;
+	private Compression compression;
+	private int batchSize;
+	private MemoryRecordsBuilder batch;
+	private String[] userIds;
+	private SplittableRandom random;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Wire {
+
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		boolean compact = payload.equals("event-lz4");
+		valueSerializer = new JsonSerializer<>();
+		valueSerializer.setAddTypeInfo(!compact);
+		compression = compact ? Compression.lz4().build() : Compression.NONE;
+		batchSize = compact ? 65536 : 16384;
+		batch = newBatch();
+		random = new SplittableRandom(42);
+		userIds = new String[1000];
+		for (int i = 0; i < userIds.length; i++) {
+			userIds[i] = UUID.nameUUIDFromBytes(("user-" + i).getBytes()).toString();
+		}
+	}
+
+	@Benchmark
+	public void send(Wire wire) {
+		Activity activity = activity();
+		Object value = payload.equals("event-lz4") ? ActivityEvent.from(activity) : activity;
+
+		RecordHeaders headers = new RecordHeaders();
+		byte[] key = keySerializer.serialize(TOPIC, activity.getUserId());
+		byte[] bytes = valueSerializer.serialize(TOPIC, headers, value);
+		Header[] recordHeaders = headers.toArray();
+		long timestamp = System.currentTimeMillis();
+
+		if (!batch.hasRoomFor(timestamp, key, bytes, recordHeaders)) {
+			wire.bytes += batch.build().sizeInBytes();
+			batch = newBatch();
+		}
+		batch.append(timestamp, key, bytes, recordHeaders);
+	}
+
+	// Distinct users, IDs, numbers and times, so lz4 does not just see one record repeated
+	private Activity activity() {
+		LocalDateTime startTime = LocalDateTime.of(2025, 3, 1, 6, 0).plusMinutes(random.nextInt(500_000));
+		Activity activity = new Activity();
+		activity.setActivityId(UUID.randomUUID().toString().replace("-", "").substring(0, 24));
+		activity.setUserId(userIds[random.nextInt(userIds.length)]);
+		activity.setActivityType(ActivityType.values()[random.nextInt(ActivityType.values().length)]);
+		activity.setDuration(10 + random.nextInt(120));
+		activity.setCaloriesBurned(50 + random.nextInt(1200));
+		activity.setStartTime(startTime);
+		activity.setAdditionalMetrics(Map.of("distanceKm", random.nextInt(300) / 10.0,
+				"averageHeartRate", 90 + random.nextInt(90),
+				"elevationGainM", random.nextInt(800)));
+		activity.setCreatedAt(startTime.plusMinutes(activity.getDuration()).plusSeconds(random.nextInt(60)));
+		activity.setUpdatedAt(activity.getCreatedAt());
+		return activity;
+	}
+
+	private MemoryRecordsBuilder newBatch() {
+		return MemoryRecords.builder(ByteBuffer.allocate(batchSize), compression, TimestampType.CREATE_TIME, 0L);
+	}
+}
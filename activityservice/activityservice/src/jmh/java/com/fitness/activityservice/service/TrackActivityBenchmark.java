@@ -0,0 +1,121 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.ActivityType;
+import com.fitness.activityservice.repository.ActivityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution (p50/p99 with SampleTime) of ActivityServiceimpl.trackActivity,
+ * the service behind POST /trackActivity, under 8 concurrent writers. USERSERVICE
+ * is a stub answering after user-validation-latency; Mongo is the in-process
+ * mongo-java-server, so the three modes differ only in the validation hop:
+ *
+ * - validate-every-request: the behaviour before the trusted-gateway mode and the cache
+ * - cached: validated user IDs kept in the Caffeine cache
+ * - trusted-gateway: X-User-ID is taken as validated by the API Gateway
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TrackActivityBenchmark {
+
+	@Param({"validate-every-request", "cached", "trusted-gateway"})
+	public String mode;
+
+	@Param("5")
+	public int userValidationLatencyMillis;
+
+	private MongoServer mongoServer;
+	private MongoClient client;
+	private ActivityServiceimpl activityService;
+
+	@Setup
+	public void setUp() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(mongoServer.bindAndGetConnectionString());
+		MongoTemplate mongoTemplate = new MongoTemplate(client, "track_activity_benchmark");
+		MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+		ActivityMapper activityMapper = Mappers.getMapper(ActivityMapper.class);
+
+		// Size 0 with a synchronous executor drops every entry on write: a validation per request
+		Cache<String, Boolean> validatedUserCache = mode.equals("validate-every-request")
+				? Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).build()
+				: Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(Duration.ofMinutes(10)).build();
+		Duration latency = Duration.ofMillis(userValidationLatencyMillis);
+		WebClient userWebClient = WebClient.builder()
+				.exchangeFunction(request -> Mono.delay(latency).thenReturn(ClientResponse.create(HttpStatus.OK)
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+						.body("true")
+						.build()))
+				.build();
+
+		activityService = new ActivityServiceimpl();
+		ReflectionTestUtils.setField(activityService, "activityRepository", repositories.getRepository(ActivityRepository.class));
+		ReflectionTestUtils.setField(activityService, "activityMapper", activityMapper);
+		ReflectionTestUtils.setField(activityService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(activityService, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(activityService, "activityStatsService", new ActivityStatsService(mongoTemplate, activityMapper, 366, false, "", 104));
+		ReflectionTestUtils.setField(activityService, "userWebClient", userWebClient);
+		ReflectionTestUtils.setField(activityService, "validatedUserCache", validatedUserCache);
+		ReflectionTestUtils.setField(activityService, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(activityService, "trustGateway", mode.equals("trusted-gateway"));
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+		mongoServer.shutdownNow();
+	}
+
+	@Benchmark
+	public ActivityResponse trackActivity() {
+		ActivityRequest request = new ActivityRequest();
+		request.setUserId("user-" + (Thread.currentThread().getId() % 8));
+		request.setActivityType(ActivityType.RUNNING);
+		request.setDuration(45);
+		request.setCaloriesBurned(420);
+		request.setStartTime(LocalDateTime.of(2025, 3, 1, 7, 0));
+		return activityService.trackActivity(request);
+	}
+}
@@ -0,0 +1,136 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.ActivityType;
+import com.fitness.activityservice.repository.ActivityRepository;
+import com.fitness.activityservice.repository.ReactiveActivityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.mongodb.repository.support.ReactiveMongoRepositoryFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution (p99 with SampleTime) of trackActivity on
+ * the servlet path (ActivityServiceimpl, blocking driver) and on the reactive
+ * path (ReactiveActivityService, reactive driver), under 16 concurrent callers.
+ * Both write the same two documents (the activity with its outbox event, and the
+ * daily stats) to the in-process mongo-java-server and validate users against the
+ * same USERSERVICE stub, cached after the first call.
+ *
+ * The reactive path is awaited per call, so this compares the per-request cost
+ * of the two stacks; the thread savings of WebFlux under many more open
+ * connections than threads need an HTTP load test against both profiles.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class TrackActivityStackBenchmark {
+
+	@Param({"servlet", "reactive"})
+	public String stack;
+
+	private MongoServer mongoServer;
+	private MongoClient client;
+	private com.mongodb.reactivestreams.client.MongoClient reactiveClient;
+	private ActivityServiceimpl activityService;
+	private ReactiveActivityService reactiveActivityService;
+
+	@Setup
+	public void setUp() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		String connectionString = mongoServer.bindAndGetConnectionString();
+		client = MongoClients.create(connectionString);
+		MongoTemplate mongoTemplate = new MongoTemplate(client, "track_activity_stack_benchmark");
+		ActivityMapper activityMapper = Mappers.getMapper(ActivityMapper.class);
+		ActivityStatsService activityStatsService = new ActivityStatsService(mongoTemplate, activityMapper, 366, false, "", 104);
+		Cache<String, Boolean> validatedUserCache = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(Duration.ofMinutes(10)).build();
+		WebClient userWebClient = WebClient.builder()
+				.exchangeFunction(request -> Mono.delay(Duration.ofMillis(5)).thenReturn(ClientResponse.create(HttpStatus.OK)
+						.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+						.body("true")
+						.build()))
+				.build();
+
+		if (stack.equals("servlet")) {
+			MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+			activityService = new ActivityServiceimpl();
+			ReflectionTestUtils.setField(activityService, "activityRepository", repositories.getRepository(ActivityRepository.class));
+			ReflectionTestUtils.setField(activityService, "activityMapper", activityMapper);
+			ReflectionTestUtils.setField(activityService, "mongoTemplate", mongoTemplate);
+			ReflectionTestUtils.setField(activityService, "objectMapper", new ObjectMapper());
+			ReflectionTestUtils.setField(activityService, "activityStatsService", activityStatsService);
+			ReflectionTestUtils.setField(activityService, "userWebClient", userWebClient);
+			ReflectionTestUtils.setField(activityService, "validatedUserCache", validatedUserCache);
+			ReflectionTestUtils.setField(activityService, "meterRegistry", new SimpleMeterRegistry());
+		} else {
+			reactiveClient = com.mongodb.reactivestreams.client.MongoClients.create(connectionString);
+			ReactiveMongoTemplate reactiveMongoTemplate = new ReactiveMongoTemplate(reactiveClient, "track_activity_stack_benchmark");
+			reactiveActivityService = new ReactiveActivityService(
+					new ReactiveMongoRepositoryFactory(reactiveMongoTemplate).getRepository(ReactiveActivityRepository.class),
+					reactiveMongoTemplate, activityStatsService, activityMapper, userWebClient, validatedUserCache,
+					new SimpleMeterRegistry(), false, 100, 500);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (reactiveClient != null) {
+			reactiveClient.close();
+		}
+		client.close();
+		mongoServer.shutdownNow();
+	}
+
+	@Benchmark
+	public ActivityResponse trackActivity() {
+		ActivityRequest request = new ActivityRequest();
+		request.setUserId("user-" + (Thread.currentThread().getId() % 16));
+		request.setActivityType(ActivityType.RUNNING);
+		request.setDuration(45);
+		request.setCaloriesBurned(420);
+		request.setStartTime(LocalDateTime.of(2025, 3, 1, 7, 0));
+		if (stack.equals("servlet")) {
+			return activityService.trackActivity(request);
+		}
+		return reactiveActivityService.trackActivity(request, null).block();
+	}
+}
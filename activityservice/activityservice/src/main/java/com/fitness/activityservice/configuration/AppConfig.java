@@ -1,20 +1,21 @@
 package com.fitness.activityservice.configuration;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.time.Duration;
+
 @Configuration
 @EnableMongoAuditing
+@EnableScheduling
 public class AppConfig {
-    @Bean
-    public ModelMapper modelMapper(){
-        return new ModelMapper();
-    }
-
     @Bean
     @LoadBalanced
     public WebClient.Builder webClientBuilder(){
@@ -26,4 +27,17 @@ public class AppConfig {
         return webClientBuilder.baseUrl("http://USERSERVICE").build();
     }
 
+    /**
+     * User IDs recently confirmed by USERSERVICE, so repeated activity writes
+     * by the same user skip the validation round trip.
+     */
+    @Bean
+    public Cache<String,Boolean> validatedUserCache(@Value("${activity.user-validation.cache.maximum-size:100000}") long maximumSize,
+                                                    @Value("${activity.user-validation.cache.ttl:10m}") Duration ttl){
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
 }
@@ -0,0 +1,42 @@
+package com.fitness.activityservice.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Puts the gateway's X-Correlation-ID into the MDC for the request thread, so it
+ * shows up in the logs and is stored on the outbox events written by the request.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER="X-Correlation-ID";
+    public static final String MDC_KEY="correlationId";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        String correlationId=request.getHeader(HEADER);
+        if(correlationId==null || correlationId.isBlank()){
+            filterChain.doFilter(request,response);
+            return;
+        }
+        MDC.put(MDC_KEY,correlationId);
+        try{
+            filterChain.doFilter(request,response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+}
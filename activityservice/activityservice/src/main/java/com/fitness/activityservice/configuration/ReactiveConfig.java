@@ -0,0 +1,15 @@
+package com.fitness.activityservice.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.config.EnableReactiveMongoAuditing;
+
+/**
+ * Non-blocking mode (spring.profiles.active=reactive): fills createdAt and
+ * updatedAt for documents saved through the reactive repositories as well.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableReactiveMongoAuditing
+public class ReactiveConfig {
+}
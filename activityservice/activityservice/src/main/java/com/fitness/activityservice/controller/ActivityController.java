@@ -1,17 +1,29 @@
 package com.fitness.activityservice.controller;
 
+import com.fitness.activityservice.dto.ActivityPage;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.dto.BulkActivityResponse;
 import com.fitness.activityservice.service.ActivityService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/activity")
+// ReactiveActivityController serves the same API when running on WebFlux
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Slf4j
 public class ActivityController {
 
@@ -25,12 +37,54 @@ public class ActivityController {
         return ResponseEntity.ok(activityService.trackActivity(activityRequest));
     }
 
+    // Bulk upload (wearable sync): a JSON array, or one activity per line as NDJSON
+    @PostMapping(value = "/trackActivities", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkActivityResponse> trackActivities(@RequestBody List<ActivityRequest> activityRequests, @RequestHeader("X-User-ID") String userId){
+        log.info("Bulk activity request with {} activities",activityRequests.size());
+        return ResponseEntity.ok(activityService.trackActivities(userId,activityRequests));
+    }
+
+    @PostMapping(value = "/trackActivities", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<BulkActivityResponse> trackActivitiesStream(InputStream body, @RequestHeader("X-User-ID") String userId) throws IOException {
+        return ResponseEntity.ok(activityService.trackActivities(userId,body));
+    }
+
     @GetMapping("/activities")
     public ResponseEntity<List<ActivityResponse>> getUserActivities(@RequestHeader("X-User-ID") String userId){
 
         return ResponseEntity.ok(activityService.getUserActivities(userId));
     }
 
+    @GetMapping("/activities/{activityId}")
+    public ResponseEntity<ActivityResponse> getUserActivity(@RequestHeader("X-User-ID") String userId, @PathVariable String activityId){
+        return ResponseEntity.of(activityService.getUserActivity(userId,activityId));
+    }
+
+    @GetMapping("/activities/page")
+    public ResponseEntity<ActivityPage> getUserActivitiesPage(@RequestHeader("X-User-ID") String userId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "20") int size,
+                                                              @RequestParam(defaultValue = "true") boolean includeMetrics){
+        return ResponseEntity.ok(activityService.getUserActivitiesPage(userId,cursor,size,includeMetrics));
+    }
+
+    @GetMapping(value = "/activities/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUserActivities(@RequestHeader("X-User-ID") String userId,
+                                                                      @RequestParam(defaultValue = "true") boolean includeMetrics){
+        StreamingResponseBody body=out->activityService.exportUserActivities(userId,includeMetrics,out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Totals from the pre-aggregated daily stats; defaults to the last 30 days
+    @GetMapping("/stats")
+    public ResponseEntity<ActivityStatsResponse> getUserStats(@RequestHeader("X-User-ID") String userId,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        LocalDate end=to!=null ? to : LocalDate.now();
+        LocalDate start=from!=null ? from : end.minusDays(29);
+        return ResponseEntity.ok(activityService.getUserStats(userId,start,end));
+    }
+
     @DeleteMapping("/activities/{activityId}")
     public ResponseEntity<String> deleteActivity(@PathVariable String activityId){
         activityService.deleteActivity(activityId);
@@ -0,0 +1,25 @@
+package com.fitness.activityservice.controller;
+
+import com.fitness.activityservice.service.InvalidActivityRequestException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns rejected client input into 400 responses for ActivityController and
+ * ReactiveActivityController alike. Only InvalidActivityRequestException is
+ * mapped: any other IllegalArgumentException (Spring, the Mongo converters,
+ * Assert) is a server error and its message stays internal.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ActivityExceptionHandler {
+
+    @ExceptionHandler(InvalidActivityRequestException.class)
+    public ProblemDetail badRequest(InvalidActivityRequestException e){
+        log.debug("Rejected request: {}",e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST,e.getMessage());
+    }
+}
@@ -0,0 +1,100 @@
+package com.fitness.activityservice.controller;
+
+import com.fitness.activityservice.configuration.CorrelationIdFilter;
+import com.fitness.activityservice.dto.ActivityPage;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.dto.BulkActivityResponse;
+import com.fitness.activityservice.service.ActivityService;
+import com.fitness.activityservice.service.ReactiveActivityService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * The ActivityController API on WebFlux, active with spring.profiles.active=reactive.
+ * Tracking, history and deletes run on the reactive driver; bulk upload and
+ * stats still use the blocking services, on the bounded elastic scheduler.
+ */
+@RestController
+@RequestMapping("/api/v1/activity")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveActivityController {
+
+    @Autowired
+    private ReactiveActivityService reactiveActivityService;
+
+    @Autowired
+    private ActivityService activityService;
+
+    @PostMapping("/trackActivity")
+    public Mono<ResponseEntity<ActivityResponse>> trackActivity(@RequestBody ActivityRequest activityRequest, @RequestHeader("X-User-ID") String userId,
+                                                                @RequestHeader(value = CorrelationIdFilter.HEADER, required = false) String correlationId){
+        log.info("Activity request object receiving: {}",activityRequest);
+        activityRequest.setUserId(userId);
+        return reactiveActivityService.trackActivity(activityRequest,correlationId).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/trackActivities", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BulkActivityResponse>> trackActivities(@RequestBody List<ActivityRequest> activityRequests, @RequestHeader("X-User-ID") String userId){
+        log.info("Bulk activity request with {} activities",activityRequests.size());
+        return Mono.fromCallable(()->activityService.trackActivities(userId,activityRequests))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/activities")
+    public Flux<ActivityResponse> getUserActivities(@RequestHeader("X-User-ID") String userId){
+        return reactiveActivityService.getUserActivities(userId);
+    }
+
+    @GetMapping("/activities/{activityId}")
+    public Mono<ResponseEntity<ActivityResponse>> getUserActivity(@RequestHeader("X-User-ID") String userId, @PathVariable String activityId){
+        return reactiveActivityService.getUserActivity(userId,activityId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/activities/page")
+    public Mono<ResponseEntity<ActivityPage>> getUserActivitiesPage(@RequestHeader("X-User-ID") String userId,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(defaultValue = "20") int size,
+                                                                    @RequestParam(defaultValue = "true") boolean includeMetrics){
+        return reactiveActivityService.getUserActivitiesPage(userId,cursor,size,includeMetrics).map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/activities/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ActivityResponse> exportUserActivities(@RequestHeader("X-User-ID") String userId,
+                                                       @RequestParam(defaultValue = "true") boolean includeMetrics){
+        return reactiveActivityService.exportUserActivities(userId,includeMetrics);
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<ActivityStatsResponse>> getUserStats(@RequestHeader("X-User-ID") String userId,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        LocalDate end=to!=null ? to : LocalDate.now();
+        LocalDate start=from!=null ? from : end.minusDays(29);
+        return Mono.fromCallable(()->activityService.getUserStats(userId,start,end))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/activities/{activityId}")
+    public Mono<ResponseEntity<String>> deleteActivity(@PathVariable String activityId){
+        return reactiveActivityService.deleteActivity(activityId)
+                .thenReturn(ResponseEntity.accepted().body("Activity Deleted from Database"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.fitness.activityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityType;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Compact "activity-events" payload: only the fields the AI Service reads,
+ * instead of the whole Mongo document. Field names match the consumer's
+ * Activity model so the JSON stays wire compatible.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ActivityEvent {
+    private String activityId;
+    private String userId;
+    private ActivityType activityType;
+    private Integer duration;
+    private Integer caloriesBurned;
+    private LocalDateTime startTime;
+    private Map<String,Object> additionalMetrics;
+
+    public static ActivityEvent from(Activity activity){
+        ActivityEvent event=new ActivityEvent();
+        event.setActivityId(activity.getActivityId());
+        event.setUserId(activity.getUserId());
+        event.setActivityType(activity.getActivityType());
+        event.setDuration(activity.getDuration());
+        event.setCaloriesBurned(activity.getCaloriesBurned());
+        event.setStartTime(activity.getStartTime());
+        event.setAdditionalMetrics(activity.getAdditionalMetrics());
+        return event;
+    }
+}
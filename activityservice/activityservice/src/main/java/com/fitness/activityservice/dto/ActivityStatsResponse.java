@@ -0,0 +1,37 @@
+package com.fitness.activityservice.dto;
+
+import com.fitness.activityservice.models.ActivityType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's activity totals between from and to (inclusive), overall, per type
+ * and per day. Weekly streaks count consecutive ISO weeks with at least one
+ * activity within the last activity.stats.streak-lookback-weeks; the current streak is still alive while
+ * the current or the previous week has an activity.
+ */
+@Data
+@Builder
+public class ActivityStatsResponse {
+    private String userId;
+    private LocalDate from;
+    private LocalDate to;
+    private ActivityTotals totals;
+    private Map<ActivityType,ActivityTotals> byType;
+    private List<DailyStats> days;
+    private int currentWeeklyStreak;
+    private int longestWeeklyStreak;
+
+    @Data
+    public static class DailyStats {
+        private LocalDate day;
+        private ActivityType activityType;
+        private long count;
+        private long duration;
+        private long caloriesBurned;
+    }
+}
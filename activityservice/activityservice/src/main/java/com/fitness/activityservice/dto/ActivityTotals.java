@@ -0,0 +1,16 @@
+package com.fitness.activityservice.dto;
+
+import lombok.Data;
+
+@Data
+public class ActivityTotals {
+    private long count;
+    private long duration;
+    private long caloriesBurned;
+
+    public void add(long count, long duration, long caloriesBurned){
+        this.count+=count;
+        this.duration+=duration;
+        this.caloriesBurned+=caloriesBurned;
+    }
+}
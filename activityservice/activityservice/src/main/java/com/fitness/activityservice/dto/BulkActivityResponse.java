@@ -0,0 +1,43 @@
+package com.fitness.activityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk upload: one result per submitted activity, in submission
+ * order. A result has either the new activityId or the error that rejected it.
+ */
+@Data
+public class BulkActivityResponse {
+    private int received;
+    private int inserted;
+    private int failed;
+    private List<ItemResult> results=new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ItemResult {
+        private int index;
+        private String activityId;
+        private String error;
+    }
+
+    public void succeeded(int index, String activityId){
+        results.add(new ItemResult(index,activityId,null));
+        received++;
+        inserted++;
+    }
+
+    public void failed(int index, String error){
+        results.add(new ItemResult(index,null,error));
+        received++;
+        failed++;
+    }
+}
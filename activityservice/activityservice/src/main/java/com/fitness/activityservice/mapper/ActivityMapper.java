@@ -0,0 +1,26 @@
+package com.fitness.activityservice.mapper;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityDailyStats;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+/**
+ * Activity mappings, generated at compile time by MapStruct (plain getter/setter calls, no reflection).
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface ActivityMapper {
+
+    // The id is assigned by Mongo on insert
+    @Mapping(target = "activityId", ignore = true)
+    @Mapping(target = "outbox", ignore = true)
+    Activity toActivity(ActivityRequest activityRequest);
+
+    ActivityResponse toResponse(Activity activity);
+
+    ActivityStatsResponse.DailyStats toDailyStats(ActivityDailyStats stats);
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
@@ -13,6 +14,13 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Document(collection = "activities")
+// Serves the per-user history, newest first, including its keyset pagination
+@CompoundIndex(name = "user_startTime_id", def = "{'userId': 1, 'startTime': -1, '_id': -1}")
+// Due outbox events; sparse, so only activities whose event is still pending are indexed
+@CompoundIndex(name = "outbox_due", def = "{'outbox.nextAttemptAt': 1}", sparse = true)
+// Oldest pending event per user, which is the only one a relay may start a user with
+@CompoundIndex(name = "outbox_key_order", def = "{'userId': 1, 'outbox.createdAt': 1, '_id': 1}",
+        partialFilter = "{'outbox.createdAt': {$exists: true}}")
 @Data
 public class Activity {
 
@@ -30,6 +38,8 @@ public class Activity {
     private LocalDateTime createdAt;
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    // The activity-events message until ActivityOutboxRelay published it, then unset
+    private ActivityOutboxEvent outbox;
 
 
 }
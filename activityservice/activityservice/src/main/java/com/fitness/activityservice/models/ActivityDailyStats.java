@@ -0,0 +1,31 @@
+package com.fitness.activityservice.models;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Totals of one user's activities of one type on one day, kept up to date with
+ * $inc by ActivityStatsService. The id is "userId|day|activityType", so the
+ * first activity of the day upserts the document.
+ */
+@Document(collection = "activity_daily_stats")
+@CompoundIndex(name = "user_day", def = "{'userId': 1, 'day': -1}")
+@Data
+public class ActivityDailyStats {
+
+    @Id
+    private String id;
+
+    private String userId;
+    // ISO date (yyyy-MM-dd) of the activity's startTime in the server's time zone
+    private String day;
+    private ActivityType activityType;
+    private long count;
+    private long duration;
+    private long caloriesBurned;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,40 @@
+package com.fitness.activityservice.models;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending "activity-events" message of an activity. It is stored inside the
+ * activity document (Activity.outbox), so the activity and its event are
+ * written by one insert, which Mongo applies atomically even on a standalone
+ * server. ActivityOutboxRelay drains it to Kafka and unsets it once the broker
+ * acknowledged the event.
+ *
+ * nextAttemptAt doubles as the lease: a relay claims an event by setting
+ * claimedBy and moving nextAttemptAt past the time it needs to send it.
+ */
+@Data
+public class ActivityOutboxEvent {
+
+    private int attempts;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    // Claim of the relay batch currently sending the event, null while it waits
+    private String claimedBy;
+    // X-Correlation-ID of the request that wrote the activity, relayed as a record header
+    private String correlationId;
+
+    /**
+     * @param correlationId X-Correlation-ID of the request that wrote the activity, or null
+     */
+    public static ActivityOutboxEvent pending(String correlationId){
+        LocalDateTime now=LocalDateTime.now();
+        ActivityOutboxEvent event=new ActivityOutboxEvent();
+        event.setCorrelationId(correlationId);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        return event;
+    }
+}
@@ -5,8 +5,10 @@ import com.fitness.activityservice.models.Activity;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ActivityRepository extends MongoRepository<Activity,String> {
 
     List<Activity> findByUserId(String userId);
+    Optional<Activity> findByActivityIdAndUserId(String activityId, String userId);
 }
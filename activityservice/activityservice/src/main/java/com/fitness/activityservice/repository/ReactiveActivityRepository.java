@@ -0,0 +1,12 @@
+package com.fitness.activityservice.repository;
+
+import com.fitness.activityservice.models.Activity;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveActivityRepository extends ReactiveMongoRepository<Activity,String> {
+
+    Flux<Activity> findByUserId(String userId);
+    Mono<Activity> findByActivityIdAndUserId(String activityId, String userId);
+}
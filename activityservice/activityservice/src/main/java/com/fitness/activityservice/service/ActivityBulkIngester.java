@@ -0,0 +1,190 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.BulkActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk upload of one user's activities, e.g. after a wearable sync. Each item
+ * is checked on its own, then valid items are written in batches of
+ * activity.bulk.batch-size: one unordered insertMany for the activities, each
+ * carrying its pending outbox event (ids and timestamps assigned up front), and
+ * one bulk $inc for the daily stats. A rejected item never stops the others,
+ * and no activity is stored without its event.
+ *
+ * The outbox relay publishes the events in its usual pipelined batches.
+ */
+@Service
+@Slf4j
+public class ActivityBulkIngester {
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityMapper activityMapper;
+    private final ActivityStatsService activityStatsService;
+    private final ObjectReader requestReader;
+    private final int batchSize;
+    private final int maxItems;
+
+    public ActivityBulkIngester(MongoTemplate mongoTemplate,
+                                ActivityMapper activityMapper,
+                                ActivityStatsService activityStatsService,
+                                ObjectMapper objectMapper,
+                                @Value("${activity.bulk.batch-size:500}") int batchSize,
+                                @Value("${activity.bulk.max-items:10000}") int maxItems) {
+        this.mongoTemplate=mongoTemplate;
+        this.activityMapper=activityMapper;
+        this.activityStatsService=activityStatsService;
+        this.requestReader=objectMapper.readerFor(ActivityRequest.class);
+        this.batchSize=Math.max(batchSize,1);
+        this.maxItems=maxItems;
+    }
+
+    private record Pending(int index, Activity activity) {}
+
+    /**
+     * @param correlationId X-Correlation-ID of the upload request, stored on its outbox events
+     */
+    public BulkActivityResponse ingest(String userId, List<ActivityRequest> requests, String correlationId){
+        if(requests.size()>maxItems){
+            throw new InvalidActivityRequestException("At most "+maxItems+" activities per upload");
+        }
+        BulkActivityResponse response=new BulkActivityResponse();
+        List<Pending> batch=new ArrayList<>(Math.min(requests.size(),batchSize));
+        for(int i=0;i<requests.size();i++){
+            add(userId,i,requests.get(i),batch,response,correlationId);
+        }
+        flush(batch,response,correlationId);
+        return sorted(response);
+    }
+
+    /**
+     * Reads one ActivityRequest per line; blank lines are skipped and an
+     * unreadable line only fails its own item. The stream is written as it is
+     * read, so the size cap can't reject the upload as a whole: items past
+     * activity.bulk.max-items are reported as failed and never parsed.
+     */
+    public BulkActivityResponse ingest(String userId, InputStream ndjson, String correlationId) throws IOException {
+        BulkActivityResponse response=new BulkActivityResponse();
+        List<Pending> batch=new ArrayList<>(batchSize);
+        BufferedReader lines=new BufferedReader(new InputStreamReader(ndjson,StandardCharsets.UTF_8));
+        int index=0;
+        String line;
+        while((line=lines.readLine())!=null){
+            if(line.isBlank()){
+                continue;
+            }
+            if(index>=maxItems){
+                response.failed(index++,"Over the limit of "+maxItems+" activities per upload");
+                continue;
+            }
+            ActivityRequest request;
+            try{
+                request=requestReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                response.failed(index++,"Unreadable activity: "+e.getOriginalMessage());
+                continue;
+            }
+            add(userId,index++,request,batch,response,correlationId);
+        }
+        flush(batch,response,correlationId);
+        return sorted(response);
+    }
+
+    private void add(String userId, int index, ActivityRequest request, List<Pending> batch, BulkActivityResponse response, String correlationId) {
+        String error=validate(request);
+        if(error!=null){
+            response.failed(index,error);
+            return;
+        }
+        request.setUserId(userId);
+        Activity activity=activityMapper.toActivity(request);
+        // Assigned here, so the results can be reported without reading the activities back
+        LocalDateTime now=LocalDateTime.now();
+        activity.setActivityId(new ObjectId().toHexString());
+        activity.setCreatedAt(now);
+        activity.setUpdatedAt(now);
+        activity.setOutbox(ActivityOutboxEvent.pending(correlationId));
+        batch.add(new Pending(index,activity));
+        if(batch.size()>=batchSize){
+            flush(batch,response,correlationId);
+        }
+    }
+
+    static String validate(ActivityRequest request) {
+        if(request==null){
+            return "Empty activity";
+        }
+        if(request.getActivityType()==null){
+            return "activityType is required";
+        }
+        if(request.getDuration()!=null && request.getDuration()<0){
+            return "duration must not be negative";
+        }
+        if(request.getCaloriesBurned()!=null && request.getCaloriesBurned()<0){
+            return "caloriesBurned must not be negative";
+        }
+        return null;
+    }
+
+    private void flush(List<Pending> batch, BulkActivityResponse response, String correlationId) {
+        if(batch.isEmpty()){
+            return;
+        }
+        Map<Integer,String> rejected=new HashMap<>();
+        try{
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,Activity.class)
+                    .insert(batch.stream().map(Pending::activity).toList())
+                    .execute();
+        } catch (BulkOperationException e) {
+            // Unordered: every other item of the batch was still written
+            e.getErrors().forEach(error->rejected.put(error.getIndex(),error.getMessage()));
+            log.warn("{} of {} bulk activities were rejected",e.getErrors().size(),batch.size());
+        }
+
+        List<Activity> inserted=new ArrayList<>(batch.size());
+        for(int i=0;i<batch.size();i++){
+            Pending pending=batch.get(i);
+            String error=rejected.get(i);
+            if(error!=null){
+                response.failed(pending.index(),error);
+            } else {
+                response.succeeded(pending.index(),pending.activity().getActivityId());
+                inserted.add(pending.activity());
+            }
+        }
+        batch.clear();
+
+        if(!inserted.isEmpty()){
+            activityStatsService.recordAll(inserted);
+        }
+    }
+
+    private static BulkActivityResponse sorted(BulkActivityResponse response) {
+        response.getResults().sort(Comparator.comparingInt(BulkActivityResponse.ItemResult::getIndex));
+        return response;
+    }
+}
@@ -0,0 +1,59 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.models.Activity;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in a user's activity history, ordered by startTime desc, then
+ * _id desc. Encoded as an opaque URL-safe token. Activities without a startTime
+ * sort after all others, since Mongo orders null below any date.
+ */
+public record ActivityCursor(LocalDateTime startTime, String activityId) {
+
+    private static final char SEPARATOR='|';
+
+    public static ActivityCursor of(Activity activity) {
+        return new ActivityCursor(activity.getStartTime(),activity.getActivityId());
+    }
+
+    public String encode() {
+        String position=(startTime==null ? "" : startTime.toString())+SEPARATOR+activityId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ActivityCursor decode(String token) {
+        try{
+            String position=new String(Base64.getUrlDecoder().decode(token),StandardCharsets.UTF_8);
+            int separator=position.indexOf(SEPARATOR);
+            String startTime=position.substring(0,separator);
+            String activityId=position.substring(separator+1);
+            if(activityId.isEmpty()){
+                throw new InvalidActivityRequestException("Invalid cursor: "+token);
+            }
+            return new ActivityCursor(startTime.isEmpty() ? null : LocalDateTime.parse(startTime),activityId);
+        } catch (RuntimeException e) {
+            throw new InvalidActivityRequestException("Invalid cursor: "+token,e);
+        }
+    }
+
+    /**
+     * @return criteria matching the activities that come after this position
+     */
+    public Criteria after() {
+        if(startTime==null){
+            return new Criteria().andOperator(
+                    Criteria.where("startTime").is(null),
+                    Criteria.where("activityId").lt(activityId));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("startTime").lt(startTime),
+                new Criteria().andOperator(
+                        Criteria.where("startTime").is(startTime),
+                        Criteria.where("activityId").lt(activityId)),
+                Criteria.where("startTime").is(null));
+    }
+}
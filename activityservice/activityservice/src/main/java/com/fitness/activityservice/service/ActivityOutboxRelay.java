@@ -0,0 +1,345 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.configuration.CorrelationIdFilter;
+import com.fitness.activityservice.dto.ActivityEvent;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the activity outbox to the "activity-events" topic in the background,
+ * so that request latency never depends on the broker. The outbox is the
+ * pending event stored in each new activity (Activity.outbox); an activity
+ * deleted before its event went out takes the event with it.
+ *
+ * Each run claims a batch of due events, sends them without waiting between
+ * sends, then waits for the acknowledgements. Acknowledged events are unset;
+ * failed ones are rescheduled with exponential backoff and retried until the
+ * broker accepts them.
+ *
+ * Every instance runs a relay, so events are claimed before they are sent: a
+ * conditional update sets claimedBy and moves nextAttemptAt one lease ahead,
+ * and only the relay whose claim landed sends the event. A relay that stops
+ * mid-batch leaves its events to be claimed again once the lease ran out.
+ *
+ * Per message key (userId) events go out in the order they were written. A
+ * relay only starts a key at its oldest pending event, and after a failed send
+ * the later events of that key are held back with it, even if the broker
+ * already accepted them, so the key resumes at the failed event.
+ *
+ * Delivery is at-least-once: an event may be sent again if the relay stops
+ * between the acknowledgement and the delete, or was held back behind a failure.
+ */
+@Component
+@Slf4j
+public class ActivityOutboxRelay {
+
+    private final MongoTemplate mongoTemplate;
+    private final KafkaTemplate<String,ActivityEvent> kafkaTemplate;
+    private final String topicName;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration lease;
+    private final String instanceId=UUID.randomUUID().toString();
+    private final AtomicLong claims=new AtomicLong();
+
+    private final Counter publishedEvents;
+    private final Counter failedEvents;
+    private final Timer batchTimer;
+    private final Timer sendSuccessTimer;
+    private final Timer sendFailureTimer;
+    private final DistributionSummary payloadBytes;
+    private final AtomicLong lagMillis=new AtomicLong();
+
+    public ActivityOutboxRelay(MongoTemplate mongoTemplate,
+                               KafkaTemplate<String,ActivityEvent> kafkaTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${kafka.topic.name}") String topicName,
+                               @Value("${activity.outbox.batch-size:500}") int batchSize,
+                               @Value("${activity.outbox.send-timeout:30s}") Duration sendTimeout,
+                               @Value("${activity.outbox.initial-backoff:1s}") Duration initialBackoff,
+                               @Value("${activity.outbox.max-backoff:5m}") Duration maxBackoff,
+                               @Value("${activity.outbox.lease:5m}") Duration lease) {
+        this.mongoTemplate=mongoTemplate;
+        this.kafkaTemplate=kafkaTemplate;
+        this.topicName=topicName;
+        this.batchSize=batchSize;
+        this.sendTimeout=sendTimeout;
+        this.initialBackoff=initialBackoff;
+        this.maxBackoff=maxBackoff;
+        this.lease=lease;
+
+        this.publishedEvents=Counter.builder("activity.outbox.published")
+                .description("Outbox events acknowledged by Kafka")
+                .register(meterRegistry);
+        this.failedEvents=Counter.builder("activity.outbox.failed")
+                .description("Outbox event sends that failed and were rescheduled")
+                .register(meterRegistry);
+        this.batchTimer=Timer.builder("activity.outbox.batch")
+                .description("Time to send and acknowledge one outbox batch")
+                .register(meterRegistry);
+        this.sendSuccessTimer=sendTimer(meterRegistry,"success");
+        this.sendFailureTimer=sendTimer(meterRegistry,"failure");
+        this.payloadBytes=DistributionSummary.builder("activity.events.payload.size")
+                .description("Serialized size of activity-events record values")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("activity.outbox.lag", lagMillis, lag -> lag.get()/1000.0)
+                .description("Age in seconds of the oldest event in the last relayed batch")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${activity.outbox.poll-interval:500ms}")
+    public void relay() {
+        // Keep draining while batches come back full and nothing failed
+        while (relayBatch()==batchSize) {
+            log.debug("Outbox backlog, relaying next batch");
+        }
+    }
+
+    /**
+     * Claims and sends one batch of due outbox events.
+     *
+     * @return number of events acknowledged, or -1 if any send failed
+     */
+    int relayBatch() {
+        LocalDateTime now=LocalDateTime.now();
+        List<Activity> due=mongoTemplate.find(dueQuery(now).limit(batchSize),Activity.class);
+        if(due.isEmpty()){
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Duration.between(due.get(0).getOutbox().getCreatedAt(),now).toMillis());
+
+        List<Activity> events=claim(due,now);
+        if(events.isEmpty()){
+            return 0;
+        }
+        return batchTimer.record(()->publish(events));
+    }
+
+    /**
+     * @return activities whose event is due, oldest event first
+     */
+    static Query dueQuery(LocalDateTime now) {
+        return new Query(Criteria.where("outbox.nextAttemptAt").lte(now))
+                .with(Sort.by(Sort.Direction.ASC,"outbox.createdAt","activityId"));
+    }
+
+    /**
+     * Claims the due events for this relay. Of each message key only the claimed
+     * events up to the first pending event this relay does not hold are kept, so
+     * a key is only ever sent from its oldest pending event on and without gaps.
+     * Claimed events past that point are released again.
+     *
+     * @return the claimed events to send, in due order
+     */
+    private List<Activity> claim(List<Activity> due, LocalDateTime now) {
+        String claim=instanceId+"-"+claims.incrementAndGet();
+        List<String> ids=due.stream().map(Activity::getActivityId).toList();
+        mongoTemplate.updateMulti(new Query(Criteria.where("activityId").in(ids).and("outbox.nextAttemptAt").lte(now)),
+                new Update().set("outbox.claimedBy",claim).set("outbox.nextAttemptAt",now.plus(lease)),
+                Activity.class);
+        List<Activity> claimed=mongoTemplate.find(new Query(Criteria.where("activityId").in(ids).and("outbox.claimedBy").is(claim))
+                .with(Sort.by(Sort.Direction.ASC,"outbox.createdAt","activityId")),Activity.class);
+        if(claimed.isEmpty()){
+            return List.of();
+        }
+
+        Map<String,Activity> lastClaimed=new HashMap<>();
+        claimed.forEach(activity->lastClaimed.put(activity.getUserId(),activity));
+        Map<String,Activity> byId=new HashMap<>();
+        claimed.forEach(activity->byId.put(activity.getActivityId(),activity));
+
+        // Events still pending, whoever holds them, up to the last one claimed per key
+        Set<String> blockedKeys=new HashSet<>();
+        List<Activity> events=new ArrayList<>(claimed.size());
+        for(Activity pending:mongoTemplate.find(pendingUpTo(lastClaimed.values()),Activity.class)){
+            Activity mine=byId.get(pending.getActivityId());
+            if(mine==null){
+                blockedKeys.add(pending.getUserId());
+            } else if(!blockedKeys.contains(pending.getUserId())){
+                events.add(mine);
+            }
+        }
+
+        Set<String> sending=new HashSet<>();
+        events.forEach(activity->sending.add(activity.getActivityId()));
+        List<String> released=claimed.stream().map(Activity::getActivityId).filter(id->!sending.contains(id)).toList();
+        if(!released.isEmpty()){
+            mongoTemplate.updateMulti(new Query(Criteria.where("activityId").in(released).and("outbox.claimedBy").is(claim)),
+                    new Update().unset("outbox.claimedBy").set("outbox.nextAttemptAt",now),
+                    Activity.class);
+            log.debug("Released {} outbox events queued behind events held by another relay",released.size());
+        }
+        return events;
+    }
+
+    /**
+     * @return ids and users of the activities with a pending event at or before each of the given ones in their key, in due order
+     */
+    static Query pendingUpTo(Collection<Activity> lastPerKey) {
+        List<Criteria> keys=new ArrayList<>(lastPerKey.size());
+        for(Activity last:lastPerKey){
+            LocalDateTime createdAt=last.getOutbox().getCreatedAt();
+            keys.add(Criteria.where("userId").is(last.getUserId()).orOperator(
+                    Criteria.where("outbox.createdAt").lt(createdAt),
+                    Criteria.where("outbox.createdAt").is(createdAt).and("activityId").lte(last.getActivityId())));
+        }
+        // The partial filter of the outbox_key_order index, spelled out so the planner picks it
+        Query query=new Query(Criteria.where("outbox.createdAt").exists(true).orOperator(keys))
+                .with(Sort.by(Sort.Direction.ASC,"outbox.createdAt","activityId"));
+        query.fields().include("userId");
+        return query;
+    }
+
+    private int publish(List<Activity> events) {
+        List<CompletableFuture<?>> sends=new ArrayList<>(events.size());
+        for(Activity event:events){
+            sends.add(send(event));
+        }
+
+        List<String> published=new ArrayList<>(events.size());
+        List<Activity> failed=new ArrayList<>();
+        // Keys with a failed send, and when they are retried
+        Map<String,LocalDateTime> blockedKeys=new HashMap<>();
+        List<Activity> heldBack=new ArrayList<>();
+        for(int i=0;i<events.size();i++){
+            Activity event=events.get(i);
+            Exception error=await(sends.get(i));
+            if(blockedKeys.containsKey(event.getUserId())){
+                heldBack.add(event);
+            } else if(error==null){
+                published.add(event.getActivityId());
+            } else {
+                failed.add(reschedule(event,error));
+                blockedKeys.put(event.getUserId(),event.getOutbox().getNextAttemptAt());
+            }
+        }
+        heldBack.forEach(event->{
+            event.getOutbox().setClaimedBy(null);
+            event.getOutbox().setNextAttemptAt(blockedKeys.get(event.getUserId()));
+        });
+
+        if(!published.isEmpty()){
+            mongoTemplate.updateMulti(new Query(Criteria.where("activityId").in(published)),new Update().unset("outbox"),Activity.class);
+            publishedEvents.increment(published.size());
+        }
+        if(!failed.isEmpty()){
+            List<Activity> rescheduled=new ArrayList<>(failed);
+            rescheduled.addAll(heldBack);
+            // Only the outbox field: the rest of the activity is never rewritten by the relay
+            BulkOperations updates=mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,Activity.class);
+            rescheduled.forEach(event->updates.updateOne(new Query(Criteria.where("activityId").is(event.getActivityId())),
+                    new Update().set("outbox",event.getOutbox())));
+            updates.execute();
+            failedEvents.increment(failed.size());
+            log.warn("Failed to relay {} of {} activity events, retrying later; {} later events of the same users held back",
+                    failed.size(),events.size(),heldBack.size());
+            return -1;
+        }
+        return published.size();
+    }
+
+    /**
+     * @return why the send failed, or null once the broker acknowledged it
+     */
+    private Exception await(CompletableFuture<?> send) {
+        try{
+            send.get(sendTimeout.toMillis(),TimeUnit.MILLISECONDS);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        } catch (ExecutionException | TimeoutException e) {
+            return e;
+        }
+    }
+
+    private static Timer sendTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("activity.events.send")
+                .description("Time from send until the broker acknowledged (or rejected) the record")
+                .tag("outcome",outcome)
+                .register(meterRegistry);
+    }
+
+    private CompletableFuture<?> send(Activity event) {
+        long start=System.nanoTime();
+        try{
+            // Async callback: metrics are recorded on the producer I/O thread, never on the relay thread
+            return kafkaTemplate.send(record(event))
+                    .whenComplete((result,ex)->recordSend(result,ex,System.nanoTime()-start));
+        } catch (Exception e) {
+            sendFailureTimer.record(System.nanoTime()-start,TimeUnit.NANOSECONDS);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private ProducerRecord<String,ActivityEvent> record(Activity activity) {
+        ProducerRecord<String,ActivityEvent> record=new ProducerRecord<>(topicName,activity.getUserId(),ActivityEvent.from(activity));
+        String correlationId=activity.getOutbox().getCorrelationId();
+        if(correlationId!=null){
+            record.headers().add(CorrelationIdFilter.HEADER,correlationId.getBytes(StandardCharsets.UTF_8));
+        }
+        return record;
+    }
+
+    private void recordSend(SendResult<String,ActivityEvent> result, Throwable ex, long elapsedNanos) {
+        if(ex!=null){
+            sendFailureTimer.record(elapsedNanos,TimeUnit.NANOSECONDS);
+            return;
+        }
+        sendSuccessTimer.record(elapsedNanos,TimeUnit.NANOSECONDS);
+        if(result!=null && result.getRecordMetadata()!=null){
+            payloadBytes.record(result.getRecordMetadata().serializedValueSize());
+        }
+    }
+
+    private Activity reschedule(Activity activity, Exception e) {
+        ActivityOutboxEvent event=activity.getOutbox();
+        int attempts=event.getAttempts()+1;
+        long backoffMillis=initialBackoff.toMillis()<<Math.min(attempts-1,20);
+        event.setAttempts(attempts);
+        event.setClaimedBy(null);
+        event.setLastError(String.valueOf(e.getCause()!=null ? e.getCause().getMessage() : e.getMessage()));
+        event.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(Math.min(backoffMillis,maxBackoff.toMillis()))));
+        return activity;
+    }
+}
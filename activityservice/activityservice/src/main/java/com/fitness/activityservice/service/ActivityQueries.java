@@ -0,0 +1,63 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityPage;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+/**
+ * History queries, paging and the tracking timer shared by ActivityServiceimpl
+ * and ReactiveActivityService, so both modes read the same pages and report
+ * to the same meter.
+ */
+final class ActivityQueries {
+
+    private ActivityQueries() {
+    }
+
+    static Timer trackTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("activity.track")
+                .description("Tracking one activity: user check, activity, outbox event and daily stats writes")
+                .tag("outcome",outcome)
+                .register(meterRegistry);
+    }
+
+    static int pageSize(int size, int maxPageSize) {
+        return Math.max(1,Math.min(size,maxPageSize));
+    }
+
+    static Criteria historyCriteria(String userId, String cursor) {
+        Criteria criteria=Criteria.where("userId").is(userId);
+        if(cursor!=null && !cursor.isBlank()){
+            criteria=new Criteria().andOperator(criteria,ActivityCursor.decode(cursor).after());
+        }
+        return criteria;
+    }
+
+    static Query historyQuery(Criteria criteria, boolean includeMetrics) {
+        Query query=new Query(criteria).with(Sort.by(Sort.Direction.DESC,"startTime","activityId"));
+        if(!includeMetrics){
+            query.fields().exclude("metrics");
+        }
+        return query;
+    }
+
+    /**
+     * @param activities up to pageSize+1 activities, the extra one only telling that another page follows
+     */
+    static ActivityPage toPage(List<Activity> activities, int pageSize, ActivityMapper activityMapper) {
+        boolean hasMore=activities.size()>pageSize;
+        List<Activity> page=hasMore ? activities.subList(0,pageSize) : activities;
+
+        List<ActivityResponse> activitiesResponse=page.stream().map(activityMapper::toResponse).toList();
+        String nextCursor=hasMore ? ActivityCursor.of(page.get(page.size()-1)).encode() : null;
+        return new ActivityPage(activitiesResponse,nextCursor);
+    }
+}
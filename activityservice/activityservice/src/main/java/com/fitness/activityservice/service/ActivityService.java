@@ -1,15 +1,29 @@
 package com.fitness.activityservice.service;
 
+import com.fitness.activityservice.dto.ActivityPage;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.dto.BulkActivityResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 public interface ActivityService {
 
     public ActivityResponse trackActivity(ActivityRequest activityRequest);
+    public BulkActivityResponse trackActivities(String userId, List<ActivityRequest> activityRequests);
+    public BulkActivityResponse trackActivities(String userId, InputStream ndjson) throws IOException;
     public Boolean validateUser(String userId);
     public List<ActivityResponse> getUserActivities(String userId);
+    public Optional<ActivityResponse> getUserActivity(String userId, String activityId);
+    public ActivityPage getUserActivitiesPage(String userId, String cursor, int size, boolean includeMetrics);
+    public void exportUserActivities(String userId, boolean includeMetrics, OutputStream out) throws IOException;
+    public ActivityStatsResponse getUserStats(String userId, LocalDate from, LocalDate to);
     public void deleteActivity(String activityId);
 
 
@@ -1,75 +1,150 @@
 package com.fitness.activityservice.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.activityservice.configuration.CorrelationIdFilter;
+import com.fitness.activityservice.dto.ActivityPage;
 import com.fitness.activityservice.dto.ActivityRequest;
 import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.dto.BulkActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
 import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
 import com.fitness.activityservice.repository.ActivityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.common.errors.ResourceNotFoundException;
-import org.modelmapper.ModelMapper;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ActivityServiceimpl implements ActivityService{
 
-    @Value("${kafka.topic.name}")
-    private String topicName;
-
     @Autowired
     private ActivityRepository activityRepository;
     @Autowired
-    private ModelMapper modelMapper;
+    private ActivityMapper activityMapper;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Daily per-type totals, adjusted with $inc on every track and delete
+    @Autowired
+    private ActivityStatsService activityStatsService;
 
-    private final KafkaTemplate<String,Activity> kafkaTemplate;
+    @Autowired
+    private ActivityBulkIngester activityBulkIngester;
 
     @Autowired
     private WebClient userWebClient;
 
-    @Override
-    public ActivityResponse trackActivity(ActivityRequest activityRequest) {
+    @Autowired
+    private Cache<String,Boolean> validatedUserCache;
 
-        Boolean validUser= validateUser(activityRequest.getUserId());
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-        if(!validUser){
-            throw new RuntimeException("Invalid userId: "+activityRequest.getUserId());
-        }
+    // When true, X-User-ID is trusted as already validated (or registered) by the API Gateway
+    @Value("${activity.user-validation.trust-gateway:false}")
+    private boolean trustGateway;
 
-        Activity activity= modelMapper.map(activityRequest,Activity.class);
-        activity.setActivityId(null);
-        Activity savedActivity=activityRepository.save(activity);
+    @Value("${activity.history.max-page-size:100}")
+    private int maxPageSize;
+    @Value("${activity.history.export-batch-size:500}")
+    private int exportBatchSize;
 
+    @Override
+    public ActivityResponse trackActivity(ActivityRequest activityRequest) {
+        Timer.Sample sample=Timer.start(meterRegistry);
+        String outcome="failure";
         try{
-            kafkaTemplate.send(topicName,savedActivity.getUserId(),savedActivity);
-        } catch (Exception e) {
-            e.printStackTrace();
+            requireValidUser(activityRequest.getUserId());
+
+            Activity activity= activityMapper.toActivity(activityRequest);
+            // Inserted with the activity in one document, relayed to Kafka by ActivityOutboxRelay
+            activity.setOutbox(ActivityOutboxEvent.pending(correlationId()));
+            Activity savedActivity=activityRepository.save(activity);
+            activityStatsService.record(savedActivity);
+
+            ActivityResponse activityResponse=activityMapper.toResponse(savedActivity);
+            outcome="success";
+            return activityResponse;
+        } finally {
+            sample.stop(ActivityQueries.trackTimer(meterRegistry,outcome));
         }
+    }
+
+    @Override
+    public BulkActivityResponse trackActivities(String userId, List<ActivityRequest> activityRequests) {
+        // Validated once for the whole upload
+        requireValidUser(userId);
+        return activityBulkIngester.ingest(userId,activityRequests,correlationId());
+    }
+
+    @Override
+    public BulkActivityResponse trackActivities(String userId, InputStream ndjson) throws IOException {
+        requireValidUser(userId);
+        return activityBulkIngester.ingest(userId,ndjson,correlationId());
+    }
+
+    // X-Correlation-ID of the request being served, put into the MDC by CorrelationIdFilter
+    private static String correlationId() {
+        return MDC.get(CorrelationIdFilter.MDC_KEY);
+    }
 
-        ActivityResponse activityResponse=modelMapper.map(savedActivity,ActivityResponse.class);
-        return activityResponse;
+    private void requireValidUser(String userId) {
+        if(!trustGateway){
+            Boolean validUser= validateUser(userId);
+
+            if(!Boolean.TRUE.equals(validUser)){
+                throw new RuntimeException("Invalid userId: "+userId);
+            }
+        }
     }
 
     @Override
     public Boolean validateUser(String userId) {
+        if(userId!=null && validatedUserCache.getIfPresent(userId)!=null){
+            return true;
+        }
         try{
-            return userWebClient.get()
+            Boolean validUser=userWebClient.get()
                     .uri("/api/v1/users/{userId}/validate",userId)
                     .retrieve()
                     .bodyToMono(Boolean.class)
                     .block();
+            if(Boolean.TRUE.equals(validUser)){
+                validatedUserCache.put(userId,true);
+            }
+            return validUser;
         }
         catch (WebClientResponseException e){
-            e.printStackTrace();
+            log.warn("User service could not validate user {}: {}",userId,e.getStatusCode(),e);
         }
         return false;
     }
@@ -78,15 +153,54 @@ public class ActivityServiceimpl implements ActivityService{
     public List<ActivityResponse> getUserActivities(String userId) {
         log.info("user id received: {}",userId);
         List<Activity> activities=activityRepository.findByUserId(userId);
-        log.info("Activities received: {}",activities);
-        List<ActivityResponse> activitiesResponse=activities.stream().map(activity -> modelMapper.map(activity, ActivityResponse.class)).toList();
+        log.debug("Activities received: {}",activities.size());
+        List<ActivityResponse> activitiesResponse=activities.stream().map(activityMapper::toResponse).toList();
         return activitiesResponse;
     }
 
+    @Override
+    public Optional<ActivityResponse> getUserActivity(String userId, String activityId) {
+        // Only the owner's activity; someone else's reads as missing
+        return activityRepository.findByActivityIdAndUserId(activityId,userId).map(activityMapper::toResponse);
+    }
+
+    @Override
+    public ActivityPage getUserActivitiesPage(String userId, String cursor, int size, boolean includeMetrics) {
+        int pageSize=ActivityQueries.pageSize(size,maxPageSize);
+        // One extra row tells whether another page follows
+        List<Activity> activities=mongoTemplate.find(ActivityQueries.historyQuery(ActivityQueries.historyCriteria(userId,cursor),includeMetrics).limit(pageSize+1),Activity.class);
+        return ActivityQueries.toPage(activities,pageSize,activityMapper);
+    }
+
+    @Override
+    public void exportUserActivities(String userId, boolean includeMetrics, OutputStream out) throws IOException {
+        Query query=ActivityQueries.historyQuery(Criteria.where("userId").is(userId),includeMetrics).cursorBatchSize(exportBatchSize);
+        // One JSON document per line, read from an open cursor so the history never sits in memory
+        try(Stream<Activity> activities=mongoTemplate.stream(query,Activity.class);
+            JsonGenerator generator=objectMapper.createGenerator(out)){
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            Iterator<Activity> iterator=activities.iterator();
+            int written=0;
+            while(iterator.hasNext()){
+                generator.writeObject(activityMapper.toResponse(iterator.next()));
+                generator.writeRaw('\n');
+                if(++written%exportBatchSize==0){
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    @Override
+    public ActivityStatsResponse getUserStats(String userId, LocalDate from, LocalDate to) {
+        return activityStatsService.getStats(userId,from,to);
+    }
+
     @Override
     public void deleteActivity(String activityId) {
 
         Activity activity=activityRepository.findById(activityId).orElseThrow(()->new ResourceNotFoundException("Activity with given activityId isn't present in Database: "+activityId));
         activityRepository.delete(activity);
+        activityStatsService.remove(activity);
     }
 }
@@ -0,0 +1,255 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityStatsResponse;
+import com.fitness.activityservice.dto.ActivityTotals;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityDailyStats;
+import com.fitness.activityservice.models.ActivityType;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user, per-day, per-type activity totals (activity_daily_stats), so that
+ * dashboards read one document per active day instead of every activity.
+ *
+ * Tracking and deleting an activity adjust its day with an atomic $inc. The
+ * activity and its totals are separate writes, so rebuild() recomputes the
+ * whole collection from the activities: for the initial backfill, or to repair
+ * drift. Set activity.stats.rebuild-on-startup to run it once at startup.
+ *
+ * Days are cut in activity.stats.zone (the server's zone if unset), both by
+ * the $inc path and by rebuild(), so the two always agree on an activity's day.
+ */
+@Service
+@Slf4j
+public class ActivityStatsService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityMapper activityMapper;
+    private final int maxWindowDays;
+    private final boolean rebuildOnStartup;
+    private final ZoneId zone;
+    private final int streakLookbackWeeks;
+
+    public ActivityStatsService(MongoTemplate mongoTemplate,
+                                ActivityMapper activityMapper,
+                                @Value("${activity.stats.max-window-days:366}") int maxWindowDays,
+                                @Value("${activity.stats.rebuild-on-startup:false}") boolean rebuildOnStartup,
+                                @Value("${activity.stats.zone:}") String zone,
+                                @Value("${activity.stats.streak-lookback-weeks:104}") int streakLookbackWeeks) {
+        this.mongoTemplate=mongoTemplate;
+        this.activityMapper=activityMapper;
+        this.maxWindowDays=maxWindowDays;
+        this.rebuildOnStartup=rebuildOnStartup;
+        this.zone=zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+        this.streakLookbackWeeks=streakLookbackWeeks;
+    }
+
+    public void record(Activity activity){
+        adjust(activity,1);
+    }
+
+    /**
+     * Records several activities with one unordered bulk write, one $inc per
+     * user, day and type.
+     */
+    public void recordAll(Collection<Activity> activities){
+        Map<String,ActivityDailyStats> increments=new LinkedHashMap<>();
+        for(Activity activity:activities){
+            if(activity.getUserId()==null || activity.getActivityType()==null){
+                continue;
+            }
+            ActivityDailyStats increment=increments.computeIfAbsent(statsId(activity),id->{
+                ActivityDailyStats stats=new ActivityDailyStats();
+                stats.setId(id);
+                stats.setUserId(activity.getUserId());
+                stats.setDay(day(activity));
+                stats.setActivityType(activity.getActivityType());
+                return stats;
+            });
+            increment.setCount(increment.getCount()+1);
+            increment.setDuration(increment.getDuration()+valueOf(activity.getDuration()));
+            increment.setCaloriesBurned(increment.getCaloriesBurned()+valueOf(activity.getCaloriesBurned()));
+        }
+        if(increments.isEmpty()){
+            return;
+        }
+        BulkOperations bulk=mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,ActivityDailyStats.class);
+        increments.values().forEach(increment->bulk.upsert(Query.query(Criteria.where("id").is(increment.getId())),increment(increment)));
+        bulk.execute();
+    }
+
+    public void remove(Activity activity){
+        adjust(activity,-1);
+        mongoTemplate.remove(emptyStatsQuery(activity),ActivityDailyStats.class);
+    }
+
+    private void adjust(Activity activity, int sign) {
+        if(activity.getUserId()==null || activity.getActivityType()==null){
+            return;
+        }
+        mongoTemplate.upsert(statsQuery(activity),increment(activity,sign),ActivityDailyStats.class);
+    }
+
+    /**
+     * @return the daily stats document the activity counts towards
+     */
+    Query statsQuery(Activity activity) {
+        return Query.query(Criteria.where("id").is(statsId(activity)));
+    }
+
+    /**
+     * @return the activity's daily stats document, if no activity counts towards it anymore
+     */
+    Query emptyStatsQuery(Activity activity) {
+        return Query.query(Criteria.where("id").is(statsId(activity)).and("count").lte(0));
+    }
+
+    /**
+     * @param sign 1 to add the activity to its day, -1 to take it out
+     */
+    Update increment(Activity activity, int sign) {
+        ActivityDailyStats increment=new ActivityDailyStats();
+        increment.setUserId(activity.getUserId());
+        increment.setDay(day(activity));
+        increment.setActivityType(activity.getActivityType());
+        increment.setCount(sign);
+        increment.setDuration(sign*valueOf(activity.getDuration()));
+        increment.setCaloriesBurned(sign*valueOf(activity.getCaloriesBurned()));
+        return increment(increment);
+    }
+
+    private static Update increment(ActivityDailyStats increment) {
+        return new Update()
+                .setOnInsert("userId",increment.getUserId())
+                .setOnInsert("day",increment.getDay())
+                .setOnInsert("activityType",increment.getActivityType())
+                .inc("count",increment.getCount())
+                .inc("duration",increment.getDuration())
+                .inc("caloriesBurned",increment.getCaloriesBurned())
+                .set("updatedAt",LocalDateTime.now());
+    }
+
+    /**
+     * @param from first day, inclusive
+     * @param to last day, inclusive
+     */
+    public ActivityStatsResponse getStats(String userId, LocalDate from, LocalDate to){
+        if(from.isAfter(to)){
+            throw new InvalidActivityRequestException("from must not be after to");
+        }
+        if(ChronoUnit.DAYS.between(from,to)>=maxWindowDays){
+            throw new InvalidActivityRequestException("Stats window is limited to "+maxWindowDays+" days");
+        }
+
+        Query query=Query.query(Criteria.where("userId").is(userId).and("day").gte(from.toString()).lte(to.toString()))
+                .with(Sort.by(Sort.Direction.ASC,"day"));
+        List<ActivityDailyStats> days=mongoTemplate.find(query,ActivityDailyStats.class);
+
+        ActivityTotals totals=new ActivityTotals();
+        Map<ActivityType,ActivityTotals> byType=new EnumMap<>(ActivityType.class);
+        for(ActivityDailyStats day:days){
+            totals.add(day.getCount(),day.getDuration(),day.getCaloriesBurned());
+            byType.computeIfAbsent(day.getActivityType(),type->new ActivityTotals())
+                    .add(day.getCount(),day.getDuration(),day.getCaloriesBurned());
+        }
+
+        // Streaks only need the distinct active days, of the last streak-lookback-weeks
+        LocalDate today=LocalDate.now(zone);
+        LocalDate since=today.minusWeeks(streakLookbackWeeks);
+        List<LocalDate> activeDays=mongoTemplate.findDistinct(Query.query(Criteria.where("userId").is(userId).and("day").gte(since.toString())),
+                        "day",ActivityDailyStats.class,String.class)
+                .stream()
+                .map(LocalDate::parse)
+                .toList();
+        WeeklyStreaks streaks=WeeklyStreaks.of(activeDays,today);
+
+        return ActivityStatsResponse.builder()
+                .userId(userId)
+                .from(from)
+                .to(to)
+                .totals(totals)
+                .byType(byType)
+                .days(days.stream().map(activityMapper::toDailyStats).toList())
+                .currentWeeklyStreak(streaks.current())
+                .longestWeeklyStreak(streaks.longest())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if(rebuildOnStartup){
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes activity_daily_stats from all activities with one aggregation.
+     * $out swaps the result in atomically, keeping the collection's indexes;
+     * activities tracked while it runs must be repaired by running it again.
+     */
+    public void rebuild() {
+        long start=System.nanoTime();
+        Document day=new Document("$dateToString",new Document("format","%Y-%m-%d")
+                .append("date",new Document("$ifNull",List.of("$startTime","$createdAt","$$NOW")))
+                .append("timezone",zone.getId()));
+        List<Document> pipeline=List.of(
+                new Document("$match",new Document("userId",new Document("$ne",null)).append("activityType",new Document("$ne",null))),
+                new Document("$group",new Document("_id",new Document("userId","$userId").append("day",day).append("activityType","$activityType"))
+                        .append("count",new Document("$sum",1))
+                        .append("duration",new Document("$sum","$duration"))
+                        .append("caloriesBurned",new Document("$sum","$caloriesBurned"))),
+                new Document("$project",new Document("_id",new Document("$concat",List.of("$_id.userId","|","$_id.day","|","$_id.activityType")))
+                        .append("userId","$_id.userId")
+                        .append("day","$_id.day")
+                        .append("activityType","$_id.activityType")
+                        .append("count",1)
+                        .append("duration",1)
+                        .append("caloriesBurned",1)
+                        .append("updatedAt","$$NOW")),
+                new Document("$out",mongoTemplate.getCollectionName(ActivityDailyStats.class)));
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Activity.class))
+                .aggregate(pipeline)
+                .allowDiskUse(true)
+                .toCollection();
+        log.info("Rebuilt activity stats in {} ms",TimeUnit.NANOSECONDS.toMillis(System.nanoTime()-start));
+    }
+
+    String statsId(Activity activity) {
+        return activity.getUserId()+"|"+day(activity)+"|"+activity.getActivityType();
+    }
+
+    // LocalDateTime is stored as an instant in the server's zone, which rebuild() cuts in the stats zone
+    private String day(Activity activity) {
+        LocalDateTime time=activity.getStartTime()!=null ? activity.getStartTime()
+                : activity.getCreatedAt()!=null ? activity.getCreatedAt()
+                : LocalDateTime.now();
+        return time.atZone(ZoneId.systemDefault()).withZoneSameInstant(zone).toLocalDate().toString();
+    }
+
+    private static long valueOf(Integer value) {
+        return value==null ? 0 : value;
+    }
+}
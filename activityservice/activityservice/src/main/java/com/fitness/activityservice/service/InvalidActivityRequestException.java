@@ -0,0 +1,17 @@
+package com.fitness.activityservice.service;
+
+/**
+ * Client input the services reject: a malformed history cursor, a stats window
+ * that is inverted or too long, or an oversized bulk upload. ActivityExceptionHandler
+ * answers it with 400 and the message, so the message must be safe to show.
+ */
+public class InvalidActivityRequestException extends IllegalArgumentException {
+
+    public InvalidActivityRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidActivityRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,155 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityPage;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityDailyStats;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
+import com.fitness.activityservice.repository.ReactiveActivityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.ResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of ActivityServiceimpl, used by ReactiveActivityController
+ * when the service runs with spring.profiles.active=reactive. Same documents and
+ * the same order of writes (activity with its pending outbox event, daily stats
+ * $inc), through the reactive driver; the user check goes to USERSERVICE without
+ * blocking.
+ *
+ * Kafka is still only reached through the outbox: ActivityOutboxRelay keeps
+ * publishing in its pipelined batches, off the request path.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveActivityService {
+
+    private final ReactiveActivityRepository activityRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ActivityStatsService statsService;
+    private final ActivityMapper activityMapper;
+    private final WebClient userWebClient;
+    private final Cache<String,Boolean> validatedUserCache;
+    private final MeterRegistry meterRegistry;
+    private final boolean trustGateway;
+    private final int maxPageSize;
+    private final int exportBatchSize;
+
+    public ReactiveActivityService(ReactiveActivityRepository activityRepository,
+                                   ReactiveMongoTemplate mongoTemplate,
+                                   ActivityStatsService statsService,
+                                   ActivityMapper activityMapper,
+                                   WebClient userWebClient,
+                                   Cache<String,Boolean> validatedUserCache,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${activity.user-validation.trust-gateway:false}") boolean trustGateway,
+                                   @Value("${activity.history.max-page-size:100}") int maxPageSize,
+                                   @Value("${activity.history.export-batch-size:500}") int exportBatchSize) {
+        this.activityRepository=activityRepository;
+        this.mongoTemplate=mongoTemplate;
+        this.statsService=statsService;
+        this.activityMapper=activityMapper;
+        this.userWebClient=userWebClient;
+        this.validatedUserCache=validatedUserCache;
+        this.meterRegistry=meterRegistry;
+        this.trustGateway=trustGateway;
+        this.maxPageSize=maxPageSize;
+        this.exportBatchSize=exportBatchSize;
+    }
+
+    /**
+     * @param correlationId the request's X-Correlation-ID, relayed with the activity event
+     */
+    public Mono<ActivityResponse> trackActivity(ActivityRequest activityRequest, String correlationId){
+        return Mono.defer(()->{
+            Timer.Sample sample=Timer.start(meterRegistry);
+            return requireValidUser(activityRequest.getUserId())
+                    .then(Mono.fromSupplier(()->{
+                        Activity activity=activityMapper.toActivity(activityRequest);
+                        activity.setOutbox(ActivityOutboxEvent.pending(correlationId));
+                        return activity;
+                    }))
+                    .flatMap(activityRepository::save)
+                    .flatMap(savedActivity->adjustStats(savedActivity,1)
+                            .thenReturn(activityMapper.toResponse(savedActivity)))
+                    .doOnSuccess(response->sample.stop(ActivityQueries.trackTimer(meterRegistry,"success")))
+                    .doOnError(e->sample.stop(ActivityQueries.trackTimer(meterRegistry,"failure")));
+        });
+    }
+
+    public Mono<Void> requireValidUser(String userId){
+        if(trustGateway || (userId!=null && validatedUserCache.getIfPresent(userId)!=null)){
+            return Mono.empty();
+        }
+        return userWebClient.get()
+                .uri("/api/v1/users/{userId}/validate",userId)
+                .retrieve()
+                .bodyToMono(Boolean.class)
+                .onErrorResume(WebClientResponseException.class,e->{
+                    log.warn("User validation failed for {}: {}",userId,e.getStatusCode());
+                    return Mono.just(false);
+                })
+                .defaultIfEmpty(false)
+                .flatMap(validUser->{
+                    if(!validUser){
+                        return Mono.error(new RuntimeException("Invalid userId: "+userId));
+                    }
+                    validatedUserCache.put(userId,true);
+                    return Mono.<Void>empty();
+                });
+    }
+
+    public Flux<ActivityResponse> getUserActivities(String userId){
+        return activityRepository.findByUserId(userId).map(activityMapper::toResponse);
+    }
+
+    public Mono<ActivityResponse> getUserActivity(String userId, String activityId){
+        return activityRepository.findByActivityIdAndUserId(activityId,userId).map(activityMapper::toResponse);
+    }
+
+    public Mono<ActivityPage> getUserActivitiesPage(String userId, String cursor, int size, boolean includeMetrics){
+        int pageSize=ActivityQueries.pageSize(size,maxPageSize);
+        return Mono.fromSupplier(()->ActivityQueries.historyQuery(ActivityQueries.historyCriteria(userId,cursor),includeMetrics).limit(pageSize+1))
+                .flatMap(query->mongoTemplate.find(query,Activity.class).collectList())
+                .map(activities->ActivityQueries.toPage(activities,pageSize,activityMapper));
+    }
+
+    /**
+     * The whole history, newest first, pulled from the cursor as the client consumes it.
+     */
+    public Flux<ActivityResponse> exportUserActivities(String userId, boolean includeMetrics){
+        return mongoTemplate.find(ActivityQueries.historyQuery(Criteria.where("userId").is(userId),includeMetrics).cursorBatchSize(exportBatchSize),Activity.class)
+                .map(activityMapper::toResponse);
+    }
+
+    public Mono<Void> deleteActivity(String activityId){
+        return activityRepository.findById(activityId)
+                .switchIfEmpty(Mono.error(()->new ResourceNotFoundException("Activity with given activityId isn't present in Database: "+activityId)))
+                .flatMap(activity->activityRepository.delete(activity)
+                        .then(adjustStats(activity,-1))
+                        .then(mongoTemplate.remove(statsService.emptyStatsQuery(activity),ActivityDailyStats.class)))
+                .then();
+    }
+
+    private Mono<Void> adjustStats(Activity activity, int sign){
+        if(activity.getUserId()==null || activity.getActivityType()==null){
+            return Mono.empty();
+        }
+        return mongoTemplate.upsert(statsService.statsQuery(activity),statsService.increment(activity,sign),ActivityDailyStats.class)
+                .then();
+    }
+}
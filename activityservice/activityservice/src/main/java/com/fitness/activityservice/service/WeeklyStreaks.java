@@ -0,0 +1,46 @@
+package com.fitness.activityservice.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Runs of consecutive ISO weeks (Monday to Sunday) with at least one activity.
+ * The current streak ends in the current week, or in the previous one while the
+ * current week has no activity yet.
+ */
+public record WeeklyStreaks(int current, int longest) {
+
+    public static WeeklyStreaks of(Collection<LocalDate> activeDays, LocalDate today) {
+        TreeSet<LocalDate> weeks=new TreeSet<>();
+        for(LocalDate day:activeDays){
+            weeks.add(weekOf(day));
+        }
+
+        int longest=0;
+        int run=0;
+        LocalDate previous=null;
+        for(LocalDate week:weeks){
+            run=previous!=null && previous.plusWeeks(1).equals(week) ? run+1 : 1;
+            longest=Math.max(longest,run);
+            previous=week;
+        }
+
+        LocalDate week=weekOf(today);
+        if(!weeks.contains(week)){
+            week=week.minusWeeks(1);
+        }
+        int current=0;
+        while(weeks.contains(week)){
+            current++;
+            week=week.minusWeeks(1);
+        }
+        return new WeeklyStreaks(current,longest);
+    }
+
+    private static LocalDate weekOf(LocalDate day) {
+        return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+}
@@ -0,0 +1,117 @@
+package com.fitness.activityservice.controller;
+
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.service.ActivityCursor;
+import com.fitness.activityservice.service.ActivityService;
+import com.fitness.activityservice.service.ActivityStatsService;
+import com.fitness.activityservice.service.ReactiveActivityService;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.boot.web.reactive.context.AnnotationConfigReactiveWebApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.reactive.config.EnableWebFlux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ActivityExceptionHandlerTest {
+
+	private static final String BAD_CURSOR = "not-a-cursor";
+
+	@Test
+	void aMalformedCursorIsABadRequest() throws Exception {
+		ActivityService activityService = mock(ActivityService.class);
+		when(activityService.getUserActivitiesPage(anyString(), eq(BAD_CURSOR), anyInt(), anyBoolean()))
+				.thenAnswer(invocation -> ActivityCursor.decode(invocation.getArgument(1)));
+		ActivityController controller = new ActivityController();
+		ReflectionTestUtils.setField(controller, "activityService", activityService);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new ActivityExceptionHandler())
+				.build();
+
+		mockMvc.perform(get("/api/v1/activity/activities/page").param("cursor", BAD_CURSOR).header("X-User-ID", "user-1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.detail").value("Invalid cursor: " + BAD_CURSOR));
+	}
+
+	@Test
+	void anOverlongStatsWindowIsABadRequest() throws Exception {
+		ActivityStatsService statsService = new ActivityStatsService(mock(MongoTemplate.class), Mappers.getMapper(ActivityMapper.class),
+				366, false, "", 104);
+		ActivityService activityService = mock(ActivityService.class);
+		when(activityService.getUserStats(anyString(), any(LocalDate.class), any(LocalDate.class)))
+				.thenAnswer(invocation -> statsService.getStats(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)));
+		ActivityController controller = new ActivityController();
+		ReflectionTestUtils.setField(controller, "activityService", activityService);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new ActivityExceptionHandler())
+				.build();
+
+		mockMvc.perform(get("/api/v1/activity/stats").param("from", "2020-01-01").param("to", "2025-01-01").header("X-User-ID", "user-1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.detail").value("Stats window is limited to 366 days"));
+	}
+
+	@Test
+	void otherIllegalArgumentExceptionsAreNotBadRequests() {
+		ActivityService activityService = mock(ActivityService.class);
+		when(activityService.getUserActivitiesPage(anyString(), any(), anyInt(), anyBoolean()))
+				.thenThrow(new IllegalArgumentException("Converter failed on internal field"));
+		ActivityController controller = new ActivityController();
+		ReflectionTestUtils.setField(controller, "activityService", activityService);
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new ActivityExceptionHandler())
+				.build();
+
+		// Not handled by the advice, so it reaches the container as a server error
+		ServletException failure = assertThrows(ServletException.class,
+				() -> mockMvc.perform(get("/api/v1/activity/activities/page").header("X-User-ID", "user-1")));
+		assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+	}
+
+	@Test
+	void aMalformedCursorIsABadRequestOnWebFlux() {
+		ReactiveActivityService reactiveActivityService = mock(ReactiveActivityService.class);
+		when(reactiveActivityService.getUserActivitiesPage(anyString(), eq(BAD_CURSOR), anyInt(), anyBoolean()))
+				.thenAnswer(invocation -> Mono.fromSupplier(() -> {
+					ActivityCursor.decode(invocation.getArgument(1));
+					return null;
+				}));
+		AnnotationConfigReactiveWebApplicationContext context = new AnnotationConfigReactiveWebApplicationContext();
+		context.registerBean(ReactiveActivityService.class, () -> reactiveActivityService);
+		context.registerBean(ActivityService.class, () -> mock(ActivityService.class));
+		context.register(WebFlux.class, ReactiveActivityController.class, ActivityExceptionHandler.class);
+		context.refresh();
+		WebTestClient client = WebTestClient.bindToApplicationContext(context).build();
+
+		client.get().uri("/api/v1/activity/activities/page?cursor={cursor}", BAD_CURSOR).header("X-User-ID", "user-1")
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("$.detail").isEqualTo("Invalid cursor: " + BAD_CURSOR);
+		context.close();
+	}
+
+	@Configuration
+	@EnableWebFlux
+	static class WebFlux {
+	}
+}
@@ -0,0 +1,165 @@
+package com.fitness.activityservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.BulkActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityType;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityBulkIngesterTest {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final BulkOperations activityInserts = mock(BulkOperations.class);
+	private final ActivityStatsService statsService = mock(ActivityStatsService.class);
+
+	@BeforeEach
+	void bulkOperations() {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class)).thenReturn(activityInserts);
+		when(activityInserts.insert(anyList())).thenReturn(activityInserts);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void ndjsonItemsFailIndividually() throws Exception {
+		String ndjson = """
+				{"activityType":"RUNNING","duration":30,"caloriesBurned":300,"startTime":"2025-03-01T07:00:00"}
+				{"activityType":
+				{"duration":20}
+
+				{"activityType":"CYCLING","duration":60,"caloriesBurned":500}
+				""";
+
+		BulkActivityResponse response = ingester(2).ingest("user-1", new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), null);
+
+		assertEquals(4, response.getReceived());
+		assertEquals(2, response.getInserted());
+		assertEquals(2, response.getFailed());
+		List<BulkActivityResponse.ItemResult> results = response.getResults();
+		assertEquals(List.of(0, 1, 2, 3), results.stream().map(BulkActivityResponse.ItemResult::getIndex).toList());
+		assertNotNull(results.get(0).getActivityId());
+		assertTrue(results.get(1).getError().startsWith("Unreadable activity"));
+		assertEquals("activityType is required", results.get(2).getError());
+		assertNotNull(results.get(3).getActivityId());
+
+		ArgumentCaptor<List<Activity>> activities = ArgumentCaptor.forClass(List.class);
+		verify(activityInserts).insert(activities.capture());
+		assertEquals(2, activities.getValue().size());
+		assertTrue(activities.getValue().stream().allMatch(activity -> "user-1".equals(activity.getUserId())
+				&& activity.getActivityId() != null && activity.getCreatedAt() != null && activity.getOutbox() != null));
+		verify(statsService).recordAll(activities.getValue());
+	}
+
+	@Test
+	void writesInBatches() {
+		List<ActivityRequest> requests = List.of(request(ActivityType.RUNNING), request(ActivityType.CYCLING), request(ActivityType.WALKING));
+
+		BulkActivityResponse response = ingester(2).ingest("user-1", requests, null);
+
+		assertEquals(3, response.getInserted());
+		verify(activityInserts, times(2)).insert(anyList());
+		verify(activityInserts, times(2)).execute();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void itemsRejectedByMongoDoNotStopTheOthers() {
+		BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1);
+		MongoBulkWriteException failure = new MongoBulkWriteException(BulkWriteResult.acknowledged(2, 0, 0, 0, List.of(), List.of()),
+				List.of(duplicate), null, new ServerAddress(), Set.of());
+		when(activityInserts.execute()).thenThrow(new BulkOperationException("Bulk write failed", failure));
+
+		BulkActivityResponse response = ingester(10).ingest("user-1",
+				List.of(request(ActivityType.RUNNING), request(ActivityType.RUNNING), request(ActivityType.RUNNING)), "correlation-1");
+
+		assertEquals(2, response.getInserted());
+		assertEquals(1, response.getFailed());
+		assertNull(response.getResults().get(1).getActivityId());
+		assertEquals("E11000 duplicate key", response.getResults().get(1).getError());
+
+		// The pending event is part of each activity document, so only stored activities have one
+		ArgumentCaptor<List<Activity>> activities = ArgumentCaptor.forClass(List.class);
+		verify(activityInserts).insert(activities.capture());
+		assertTrue(activities.getValue().stream().allMatch(activity -> "correlation-1".equals(activity.getOutbox().getCorrelationId())));
+		ArgumentCaptor<List<Activity>> recorded = ArgumentCaptor.forClass(List.class);
+		verify(statsService).recordAll(recorded.capture());
+		assertEquals(List.of(response.getResults().get(0).getActivityId(), response.getResults().get(2).getActivityId()),
+				recorded.getValue().stream().map(Activity::getActivityId).toList());
+	}
+
+	@Test
+	void rejectsOversizedUploads() {
+		ActivityBulkIngester ingester = new ActivityBulkIngester(mongoTemplate, Mappers.getMapper(ActivityMapper.class),
+				statsService, new ObjectMapper(), 10, 2);
+
+		assertThrows(InvalidActivityRequestException.class, () -> ingester.ingest("user-1",
+				List.of(request(ActivityType.RUNNING), request(ActivityType.RUNNING), request(ActivityType.RUNNING)), null));
+		verify(mongoTemplate, times(0)).bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Activity.class));
+	}
+
+	@Test
+	void ndjsonItemsOverTheLimitAreRejectedWithoutFailingTheOthers() throws Exception {
+		ActivityBulkIngester ingester = new ActivityBulkIngester(mongoTemplate, Mappers.getMapper(ActivityMapper.class),
+				statsService, new ObjectMapper(), 1, 2);
+		String ndjson = """
+				{"activityType":"RUNNING","duration":30}
+				{"activityType":"CYCLING","duration":60}
+				{"activityType":"WALKING","duration":20}
+				not even json
+				""";
+
+		BulkActivityResponse response = ingester.ingest("user-1", new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), null);
+
+		// The first two were already written when the third was read
+		assertEquals(4, response.getReceived());
+		assertEquals(2, response.getInserted());
+		assertEquals(2, response.getFailed());
+		assertEquals("Over the limit of 2 activities per upload", response.getResults().get(2).getError());
+		assertEquals("Over the limit of 2 activities per upload", response.getResults().get(3).getError());
+		verify(activityInserts, times(2)).execute();
+	}
+
+	private ActivityBulkIngester ingester(int batchSize) {
+		ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+		return new ActivityBulkIngester(mongoTemplate, Mappers.getMapper(ActivityMapper.class), statsService, objectMapper,
+				batchSize, 1000);
+	}
+
+	private ActivityRequest request(ActivityType type) {
+		ActivityRequest request = new ActivityRequest();
+		request.setActivityType(type);
+		request.setDuration(30);
+		request.setCaloriesBurned(250);
+		return request;
+	}
+}
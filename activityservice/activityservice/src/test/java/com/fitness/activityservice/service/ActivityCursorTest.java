@@ -0,0 +1,46 @@
+package com.fitness.activityservice.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ActivityCursorTest {
+
+	@Test
+	void roundTripsThroughAnOpaqueToken() {
+		ActivityCursor cursor = new ActivityCursor(LocalDateTime.of(2025, 3, 14, 7, 30, 5), "65f2b1c0e4b0a1b2c3d4e5f6");
+		ActivityCursor withoutStart = new ActivityCursor(null, "65f2b1c0e4b0a1b2c3d4e5f7");
+
+		String token = cursor.encode();
+
+		assertFalse(token.contains("|"));
+		assertEquals(cursor, ActivityCursor.decode(token));
+		assertEquals(withoutStart, ActivityCursor.decode(withoutStart.encode()));
+	}
+
+	@Test
+	void malformedTokensAreRejected() {
+		assertThrows(InvalidActivityRequestException.class, () -> ActivityCursor.decode("not a cursor!"));
+		assertThrows(InvalidActivityRequestException.class, () -> ActivityCursor.decode("bm8tc2VwYXJhdG9y"));
+	}
+
+	@Test
+	void continuesAfterTheLastStartTimeAndId() {
+		LocalDateTime startTime = LocalDateTime.of(2025, 3, 14, 7, 30);
+
+		Document after = new ActivityCursor(startTime, "b").after().getCriteriaObject();
+		Document afterUnscheduled = new ActivityCursor(null, "b").after().getCriteriaObject();
+
+		List<?> branches = after.getList("$or", Document.class);
+		assertEquals(3, branches.size());
+		assertEquals(new Document("startTime", new Document("$lt", startTime)), branches.get(0));
+		assertEquals(new Document("startTime", null), branches.get(2));
+		assertEquals(2, afterUnscheduled.getList("$and", Document.class).size());
+	}
+}
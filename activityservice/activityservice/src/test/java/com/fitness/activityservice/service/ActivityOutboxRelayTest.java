@@ -0,0 +1,280 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityEvent;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
+import com.fitness.activityservice.models.ActivityType;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ActivityOutboxRelayTest {
+
+	private static final String TOPIC = "activity-events";
+
+	private static EmbeddedKafkaKraftBroker broker;
+	private static MongoServer mongoServer;
+	private static MongoClient client;
+
+	private MongoTemplate mongoTemplate;
+	private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeAll
+	static void startServers() {
+		broker = new EmbeddedKafkaKraftBroker(1, 1, TOPIC);
+		broker.afterPropertiesSet();
+		mongoServer = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(mongoServer.bindAndGetConnectionString());
+	}
+
+	@AfterAll
+	static void stopServers() {
+		client.close();
+		mongoServer.shutdown();
+		broker.destroy();
+	}
+
+	@BeforeEach
+	void emptyOutbox() {
+		mongoTemplate = new MongoTemplate(client, "outbox_relay_test");
+		mongoTemplate.dropCollection(Activity.class);
+	}
+
+	@Test
+	void relaysPendingEventsAndDeletesThem() {
+		List<Activity> events = IntStream.range(0, 25).mapToObj(i -> event("user-1", "activity-" + i)).toList();
+		events.forEach(event -> event.getOutbox().setCorrelationId("correlation-" + event.getActivityId()));
+		mongoTemplate.insertAll(events);
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		relay(kafkaTemplate(), meterRegistry, Duration.ofSeconds(1)).relay();
+
+		assertEquals(0, pendingCount());
+		assertEquals(25, mongoTemplate.count(new Query(), Activity.class));
+		assertEquals(25.0, meterRegistry.get("activity.outbox.published").counter().count());
+		assertEquals(25, meterRegistry.get("activity.events.send").tag("outcome", "success").timer().count());
+		assertTrue(meterRegistry.get("activity.events.payload.size").summary().mean() > 0);
+
+		try (Consumer<String, String> consumer = consumer()) {
+			broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+			List<String> keys = new ArrayList<>();
+			List<String> correlationIds = new ArrayList<>();
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (keys.size() < 25 && System.currentTimeMillis() < deadline) {
+				ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1));
+				records.forEach(record -> {
+					keys.add(record.key());
+					correlationIds.add(new String(record.headers().lastHeader("X-Correlation-ID").value(), StandardCharsets.UTF_8));
+				});
+			}
+			assertEquals(25, keys.size());
+			assertTrue(keys.stream().allMatch("user-1"::equals));
+			assertTrue(correlationIds.contains("correlation-activity-7"));
+		}
+	}
+
+	@Test
+	void failedSendsAreRescheduledNotLost() {
+		mongoTemplate.insert(event("user-1", "activity-failing"));
+
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		relay(recordingTemplate(activityId -> true), meterRegistry, Duration.ofSeconds(1)).relay();
+
+		ActivityOutboxEvent event = pending("activity-failing");
+		assertEquals(1, event.getAttempts());
+		assertEquals("broker down", event.getLastError());
+		assertNull(event.getClaimedBy());
+		assertTrue(event.getNextAttemptAt().isAfter(LocalDateTime.now()));
+		assertEquals(1.0, meterRegistry.get("activity.outbox.failed").counter().count());
+	}
+
+	@Test
+	void twoRelaysSendEveryEventOnceInKeyOrder() throws Exception {
+		// Same createdAt throughout, so the order within a key comes from the ids alone
+		LocalDateTime createdAt = LocalDateTime.now().minusSeconds(1);
+		List<Activity> events = IntStream.range(0, 300)
+				.mapToObj(i -> event("user-" + i % 4, String.format("activity-%03d", i)))
+				.peek(event -> event.getOutbox().setCreatedAt(createdAt))
+				.toList();
+		mongoTemplate.insertAll(events);
+
+		KafkaTemplate<String, ActivityEvent> template = recordingTemplate(activityId -> false);
+		List<ActivityOutboxRelay> relays = List.of(relay(template, 7), relay(template, 11));
+		ExecutorService executor = Executors.newFixedThreadPool(relays.size());
+		try {
+			List<Future<?>> runs = new ArrayList<>();
+			for (ActivityOutboxRelay relay : relays) {
+				runs.add(executor.submit(() -> {
+					long deadline = System.currentTimeMillis() + 20_000;
+					while (pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+						relay.relay();
+					}
+				}));
+			}
+			for (Future<?> run : runs) {
+				run.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(0, pendingCount());
+		assertEquals(300, sent.size());
+		assertEquals(300, sent.stream().distinct().count());
+		for (int user = 0; user < 4; user++) {
+			int key = user;
+			List<String> expected = IntStream.range(0, 300).filter(i -> i % 4 == key).mapToObj(i -> String.format("activity-%03d", i)).toList();
+			assertEquals(expected, sent.stream().filter(expected::contains).toList());
+		}
+	}
+
+	@Test
+	void laterEventsOfAKeyWaitForAFailedOne() {
+		mongoTemplate.insertAll(List.of(event("user-1", "activity-1"), event("user-1", "activity-2"), event("user-2", "activity-3")));
+		List<String> failures = new ArrayList<>(List.of("activity-1"));
+
+		KafkaTemplate<String, ActivityEvent> template = recordingTemplate(failures::remove);
+		assertEquals(-1, relay(template, 100).relayBatch());
+
+		ActivityOutboxEvent failed = pending("activity-1");
+		ActivityOutboxEvent heldBack = pending("activity-2");
+		assertEquals(1, failed.getAttempts());
+		assertEquals(0, heldBack.getAttempts());
+		assertEquals(failed.getNextAttemptAt(), heldBack.getNextAttemptAt());
+		assertNull(heldBack.getClaimedBy());
+		assertEquals(2, pendingCount());
+
+		// Another instance must not publish activity-2 while activity-1 waits
+		ActivityOutboxRelay other = relay(template, 100);
+		other.relay();
+		assertEquals(List.of("activity-1", "activity-2", "activity-3"), sent);
+
+		mongoTemplate.updateMulti(new Query(Criteria.where("outbox").exists(true)),
+				new Update().set("outbox.nextAttemptAt", LocalDateTime.now().minusSeconds(1)), Activity.class);
+		other.relay();
+
+		assertEquals(0, pendingCount());
+		assertEquals(List.of("activity-1", "activity-2", "activity-3", "activity-1", "activity-2"), sent);
+	}
+
+	@Test
+	void eventsQueuedBehindAnotherRelaysClaimWait() {
+		mongoTemplate.insertAll(List.of(event("user-1", "activity-1"), event("user-1", "activity-2")));
+		mongoTemplate.updateFirst(new Query(Criteria.where("activityId").is("activity-1")),
+				new Update().set("outbox.claimedBy", "other-relay").set("outbox.nextAttemptAt", LocalDateTime.now().plusMinutes(5)),
+				Activity.class);
+
+		assertEquals(0, relay(recordingTemplate(activityId -> false), 100).relayBatch());
+
+		assertTrue(sent.isEmpty());
+		ActivityOutboxEvent waiting = pending("activity-2");
+		assertNull(waiting.getClaimedBy());
+		assertTrue(waiting.getNextAttemptAt().isBefore(LocalDateTime.now().plusSeconds(1)));
+	}
+
+	private ActivityOutboxRelay relay(KafkaTemplate<String, ActivityEvent> template, int batchSize) {
+		return new ActivityOutboxRelay(mongoTemplate, template, new SimpleMeterRegistry(), TOPIC, batchSize,
+				Duration.ofSeconds(10), Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(5));
+	}
+
+	private ActivityOutboxRelay relay(KafkaTemplate<String, ActivityEvent> template, SimpleMeterRegistry meterRegistry,
+			Duration initialBackoff) {
+		return new ActivityOutboxRelay(mongoTemplate, template, meterRegistry, TOPIC, 100,
+				Duration.ofSeconds(10), initialBackoff, Duration.ofMinutes(5), Duration.ofMinutes(5));
+	}
+
+	/**
+	 * Records the activityId of every send; sends for which fails returns true are rejected.
+	 */
+	@SuppressWarnings("unchecked")
+	private KafkaTemplate<String, ActivityEvent> recordingTemplate(Predicate<String> fails) {
+		KafkaTemplate<String, ActivityEvent> template = mock(KafkaTemplate.class);
+		when(template.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+			ProducerRecord<String, ActivityEvent> record = invocation.getArgument(0);
+			String activityId = record.value().getActivityId();
+			sent.add(activityId);
+			if (fails.test(activityId)) {
+				return CompletableFuture.failedFuture(new RuntimeException("broker down"));
+			}
+			return CompletableFuture.supplyAsync(() -> null,
+					CompletableFuture.delayedExecutor(ThreadLocalRandom.current().nextInt(3), TimeUnit.MILLISECONDS));
+		});
+		return template;
+	}
+
+	private ActivityOutboxEvent pending(String activityId) {
+		return mongoTemplate.findById(activityId, Activity.class).getOutbox();
+	}
+
+	private long pendingCount() {
+		return mongoTemplate.count(new Query(Criteria.where("outbox").exists(true)), Activity.class);
+	}
+
+	private KafkaTemplate<String, ActivityEvent> kafkaTemplate() {
+		Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+		props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+		props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+		return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+	}
+
+	private Consumer<String, String> consumer() {
+		Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-relay-test", "false", broker);
+		return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer()).createConsumer();
+	}
+
+	private Activity event(String userId, String activityId) {
+		Activity activity = new Activity();
+		activity.setActivityId(activityId);
+		activity.setUserId(userId);
+		activity.setActivityType(ActivityType.RUNNING);
+		activity.setDuration(30);
+		activity.setCaloriesBurned(300);
+		activity.setOutbox(ActivityOutboxEvent.pending(null));
+		return activity;
+	}
+}
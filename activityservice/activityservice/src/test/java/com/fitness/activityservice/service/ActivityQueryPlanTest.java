@@ -0,0 +1,200 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityOutboxEvent;
+import com.fitness.activityservice.models.ActivityType;
+import com.fitness.activityservice.repository.ActivityRepository;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the activity queries against a real MongoDB, with the indexes declared on
+ * the documents, and fails if a query plan scans the whole collection.
+ * The server is a MongoDB container (Testcontainers, so Docker is required);
+ * set -Dmongodb.explain.uri to use a running server instead. Without either it
+ * is reported as skipped, so builds without Docker stay green.
+ */
+@EnabledIf("mongoAvailable")
+class ActivityQueryPlanTest {
+
+	private static final String URI = System.getProperty("mongodb.explain.uri");
+
+	private static final List<BsonDocument> finds = new CopyOnWriteArrayList<>();
+
+	private static MongoDBContainer mongo;
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+	private static ActivityRepository activityRepository;
+
+	static boolean mongoAvailable() {
+		return URI != null || DockerClientFactory.instance().isDockerAvailable();
+	}
+
+	@BeforeAll
+	static void connect() {
+		String uri = URI;
+		if (uri == null) {
+			mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+			mongo.start();
+			uri = mongo.getConnectionString();
+		}
+		client = MongoClients.create(MongoClientSettings.builder()
+				.applyConnectionString(new ConnectionString(uri))
+				.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+				.addCommandListener(new CommandListener() {
+					@Override
+					public void commandStarted(CommandStartedEvent event) {
+						if ("find".equals(event.getCommandName())) {
+							finds.add(event.getCommand().clone());
+						}
+					}
+				})
+				.build());
+		mongoTemplate = new MongoTemplate(client, "query_plan_" + System.currentTimeMillis());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setAutoIndexCreation(true);
+		IndexResolver indexResolver = IndexResolver.create(mappingContext);
+		indexResolver.resolveIndexFor(Activity.class).forEach(mongoTemplate.indexOps(Activity.class)::createIndex);
+
+		activityRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(ActivityRepository.class);
+
+		List<Activity> activities = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			Activity activity = new Activity();
+			activity.setUserId("user-" + i % 10);
+			activity.setActivityType(ActivityType.RUNNING);
+			activity.setDuration(30);
+			activity.setStartTime(LocalDateTime.of(2025, 1, 1, 7, 0).plusHours(i));
+			// Every other event already published
+			if (i % 2 == 0) {
+				activity.setOutbox(ActivityOutboxEvent.pending(null));
+			}
+			activities.add(activity);
+		}
+		activityRepository.saveAll(activities);
+	}
+
+	@AfterAll
+	static void dropDatabase() {
+		if (mongoTemplate != null) {
+			mongoTemplate.getDb().drop();
+		}
+		if (client != null) {
+			client.close();
+		}
+		if (mongo != null) {
+			mongo.stop();
+		}
+	}
+
+	@BeforeEach
+	void clearRecordedQueries() {
+		finds.clear();
+	}
+
+	@Test
+	void findByUserIdUsesAnIndex() {
+		assertEquals(20, activityRepository.findByUserId("user-3").size());
+
+		assertNoCollectionScan(lastFind());
+	}
+
+	@Test
+	void historyPagesAreServedInIndexOrder() {
+		mongoTemplate.find(ActivityQueries.historyQuery(Criteria.where("userId").is("user-3"), false).limit(6), Activity.class);
+		List<String> firstPage = stages(lastFind());
+
+		ActivityCursor cursor = new ActivityCursor(LocalDateTime.of(2025, 1, 4, 0, 0), "ffffffffffffffffffffffff");
+		mongoTemplate.find(ActivityQueries.historyQuery(Criteria.where("userId").is("user-3").andOperator(cursor.after()), true).limit(6),
+				Activity.class);
+		List<String> nextPage = stages(lastFind());
+
+		for (List<String> stages : List.of(firstPage, nextPage)) {
+			assertFalse(stages.contains("COLLSCAN"), "Collection scan: " + stages);
+			assertFalse(stages.contains("SORT"), "In-memory sort: " + stages);
+		}
+	}
+
+	@Test
+	void dueOutboxEventsUseAnIndex() {
+		mongoTemplate.find(ActivityOutboxRelay.dueQuery(LocalDateTime.now()).limit(50), Activity.class);
+
+		assertNoCollectionScan(lastFind());
+	}
+
+	@Test
+	void pendingEventsOfAKeyUseTheKeyOrderIndex() {
+		Activity last = mongoTemplate.findOne(ActivityOutboxRelay.dueQuery(LocalDateTime.now()), Activity.class);
+		mongoTemplate.find(ActivityOutboxRelay.pendingUpTo(List.of(last)), Activity.class);
+
+		assertNoCollectionScan(lastFind());
+	}
+
+	private static BsonDocument lastFind() {
+		assertFalse(finds.isEmpty(), "No find command was sent");
+		return finds.get(finds.size() - 1);
+	}
+
+	private static void assertNoCollectionScan(BsonDocument find) {
+		List<String> stages = stages(find);
+		assertFalse(stages.contains("COLLSCAN"), "Collection scan for " + find.toJson() + ": " + stages);
+	}
+
+	/**
+	 * @return every stage of the winning plan of the recorded find command
+	 */
+	private static List<String> stages(BsonDocument find) {
+		BsonDocument command = new BsonDocument();
+		for (String key : List.of("find", "filter", "sort", "projection", "skip", "limit")) {
+			if (find.containsKey(key)) {
+				command.put(key, find.get(key));
+			}
+		}
+		Document explain = mongoTemplate.getDb().runCommand(new Document("explain", command).append("verbosity", "queryPlanner"));
+		List<String> stages = new ArrayList<>();
+		collectStages(explain.get("queryPlanner", Document.class).get("winningPlan"), stages);
+		return stages;
+	}
+
+	private static void collectStages(Object node, List<String> stages) {
+		if (node instanceof Document document) {
+			document.forEach((key, value) -> {
+				if ("stage".equals(key)) {
+					stages.add(String.valueOf(value));
+				} else {
+					collectStages(value, stages);
+				}
+			});
+		} else if (node instanceof List<?> list) {
+			list.forEach(child -> collectStages(child, stages));
+		}
+	}
+}
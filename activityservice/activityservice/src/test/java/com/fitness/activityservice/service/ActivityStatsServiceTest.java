@@ -0,0 +1,77 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityDailyStats;
+import com.fitness.activityservice.models.ActivityType;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ActivityStatsServiceTest {
+
+	// UTC+14: the stats day differs from the UTC day for half of every day
+	private static final String ZONE = "Pacific/Kiritimati";
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class, RETURNS_DEEP_STUBS);
+
+	@Test
+	void trackingAndRebuildCutDaysInTheConfiguredZone() {
+		Activity activity = new Activity();
+		activity.setUserId("user-1");
+		activity.setActivityType(ActivityType.RUNNING);
+		// 2025-03-01 12:00 UTC, as the server's wall clock time
+		activity.setStartTime(ZonedDateTime.of(2025, 3, 1, 12, 0, 0, 0, ZoneOffset.UTC).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime());
+		ActivityStatsService statsService = service(ZONE);
+
+		statsService.rebuild();
+
+		assertEquals("user-1|2025-03-02|RUNNING", statsService.statsId(activity));
+		ArgumentCaptor<List<Document>> pipeline = ArgumentCaptor.forClass(List.class);
+		verify(mongoTemplate.getCollection(any())).aggregate(pipeline.capture());
+		Document group = pipeline.getValue().get(1).get("$group", Document.class);
+		Document day = group.get("_id", Document.class).get("day", Document.class).get("$dateToString", Document.class);
+		assertEquals(ZONE, day.getString("timezone"));
+	}
+
+	@Test
+	void streaksOnlyReadTheLookbackWindow() {
+		service(ZONE).getStats("user-1", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findDistinct(query.capture(), eq("day"), eq(ActivityDailyStats.class), eq(String.class));
+		String since = LocalDate.now(ZoneId.of(ZONE)).minusWeeks(104).toString();
+		assertEquals(since, query.getValue().getQueryObject().get("day", Document.class).getString("$gte"));
+	}
+
+	@Test
+	void windowsThatAreInvertedOrTooLongAreRejected() {
+		ActivityStatsService statsService = service(ZONE);
+
+		assertThrows(InvalidActivityRequestException.class, () -> statsService.getStats("user-1", LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1)));
+		assertThrows(InvalidActivityRequestException.class, () -> statsService.getStats("user-1", LocalDate.of(2024, 1, 1), LocalDate.of(2025, 3, 1)));
+	}
+
+	private ActivityStatsService service(String zone) {
+		return new ActivityStatsService(mongoTemplate, Mappers.getMapper(ActivityMapper.class), 366, false, zone, 104);
+	}
+}
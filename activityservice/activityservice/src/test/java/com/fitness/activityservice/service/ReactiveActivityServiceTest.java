@@ -0,0 +1,145 @@
+package com.fitness.activityservice.service;
+
+import com.fitness.activityservice.dto.ActivityRequest;
+import com.fitness.activityservice.dto.ActivityResponse;
+import com.fitness.activityservice.mapper.ActivityMapper;
+import com.fitness.activityservice.models.Activity;
+import com.fitness.activityservice.models.ActivityDailyStats;
+import com.fitness.activityservice.models.ActivityType;
+import com.fitness.activityservice.repository.ReactiveActivityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.ResourceNotFoundException;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveActivityServiceTest {
+
+	private final ReactiveActivityRepository activityRepository = mock(ReactiveActivityRepository.class);
+	private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+	private final Cache<String, Boolean> validatedUserCache = Caffeine.newBuilder().build();
+	private final AtomicInteger validations = new AtomicInteger();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void trackWritesTheActivityWithItsOutboxEventAndStats() {
+		when(activityRepository.save(any(Activity.class))).thenAnswer(invocation -> {
+			Activity activity = invocation.getArgument(0);
+			activity.setActivityId("activity-1");
+			return Mono.just(activity);
+		});
+		when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ActivityDailyStats.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(0, 0L, new BsonString("stats"))));
+
+		ActivityResponse response = service(true, "true").trackActivity(request("user-1"), "correlation-1").block();
+
+		assertEquals("activity-1", response.getActivityId());
+		ArgumentCaptor<Activity> saved = ArgumentCaptor.forClass(Activity.class);
+		verify(activityRepository).save(saved.capture());
+		assertEquals("correlation-1", saved.getValue().getOutbox().getCorrelationId());
+		ArgumentCaptor<Query> stats = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).upsert(stats.capture(), any(Update.class), eq(ActivityDailyStats.class));
+		assertEquals("user-1|2025-03-01|RUNNING", stats.getValue().getQueryObject().getString("id"));
+		assertEquals(0, validations.get());
+		assertEquals(1, meterRegistry.get("activity.track").tag("outcome", "success").timer().count());
+	}
+
+	@Test
+	void unknownUsersAreRejectedBeforeAnyWrite() {
+		ReactiveActivityService service = service(false, "false");
+
+		assertThrows(RuntimeException.class, () -> service.trackActivity(request("user-2"), null).block());
+
+		verify(activityRepository, never()).save(any(Activity.class));
+		assertEquals(1, meterRegistry.get("activity.track").tag("outcome", "failure").timer().count());
+	}
+
+	@Test
+	void validatedUsersAreCached() {
+		ReactiveActivityService service = service(false, "true");
+
+		service.requireValidUser("user-3").block();
+		service.requireValidUser("user-3").block();
+
+		assertEquals(1, validations.get());
+	}
+
+	@Test
+	void deleteTakesTheActivityOutOfItsDailyStats() {
+		Activity activity = Mappers.getMapper(ActivityMapper.class).toActivity(request("user-1"));
+		activity.setActivityId("activity-1");
+		when(activityRepository.findById("activity-1")).thenReturn(Mono.just(activity));
+		when(activityRepository.delete(activity)).thenReturn(Mono.empty());
+		when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(ActivityDailyStats.class)))
+				.thenReturn(Mono.just(UpdateResult.acknowledged(1, 1L, null)));
+		when(mongoTemplate.remove(any(Query.class), eq(ActivityDailyStats.class))).thenReturn(Mono.just(DeleteResult.acknowledged(0)));
+
+		service(true, "true").deleteActivity("activity-1").block();
+
+		ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).upsert(any(Query.class), update.capture(), eq(ActivityDailyStats.class));
+		assertEquals(-1L, update.getValue().getUpdateObject().get("$inc", Document.class).get("count"));
+		verify(mongoTemplate).remove(any(Query.class), eq(ActivityDailyStats.class));
+	}
+
+	@Test
+	void deletingAMissingActivityFails() {
+		when(activityRepository.findById("missing")).thenReturn(Mono.empty());
+
+		assertThrows(ResourceNotFoundException.class, () -> service(true, "true").deleteActivity("missing").block());
+	}
+
+	private ReactiveActivityService service(boolean trustGateway, String validateResponse) {
+		WebClient userWebClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					validations.incrementAndGet();
+					return Mono.just(ClientResponse.create(HttpStatus.OK)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+							.body(validateResponse)
+							.build());
+				})
+				.build();
+		ActivityStatsService statsService = new ActivityStatsService(mock(MongoTemplate.class), Mappers.getMapper(ActivityMapper.class),
+				366, false, "", 104);
+		return new ReactiveActivityService(activityRepository, mongoTemplate, statsService, Mappers.getMapper(ActivityMapper.class),
+				userWebClient, validatedUserCache, meterRegistry, trustGateway, 100, 500);
+	}
+
+	private ActivityRequest request(String userId) {
+		ActivityRequest request = new ActivityRequest();
+		request.setUserId(userId);
+		request.setActivityType(ActivityType.RUNNING);
+		request.setDuration(30);
+		request.setCaloriesBurned(300);
+		request.setStartTime(LocalDateTime.of(2025, 3, 1, 7, 0));
+		return request;
+	}
+}
@@ -0,0 +1,62 @@
+package com.fitness.activityservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WeeklyStreaksTest {
+
+	// A Wednesday
+	private static final LocalDate TODAY = LocalDate.of(2025, 3, 12);
+
+	@Test
+	void countsConsecutiveWeeksEndingThisWeek() {
+		WeeklyStreaks streaks = WeeklyStreaks.of(List.of(
+				LocalDate.of(2025, 3, 10),
+				LocalDate.of(2025, 3, 9),
+				LocalDate.of(2025, 3, 8),
+				LocalDate.of(2025, 2, 24)), TODAY);
+
+		assertEquals(3, streaks.current());
+		assertEquals(3, streaks.longest());
+	}
+
+	@Test
+	void currentStreakSurvivesUntilThisWeekEnds() {
+		WeeklyStreaks streaks = WeeklyStreaks.of(List.of(LocalDate.of(2025, 3, 7), LocalDate.of(2025, 2, 26)), TODAY);
+
+		assertEquals(2, streaks.current());
+	}
+
+	@Test
+	void gapEndsTheCurrentStreakButKeepsTheLongest() {
+		WeeklyStreaks streaks = WeeklyStreaks.of(List.of(
+				LocalDate.of(2025, 1, 6),
+				LocalDate.of(2025, 1, 13),
+				LocalDate.of(2025, 1, 20),
+				LocalDate.of(2025, 1, 27),
+				LocalDate.of(2025, 2, 24)), TODAY);
+
+		assertEquals(0, streaks.current());
+		assertEquals(4, streaks.longest());
+	}
+
+	@Test
+	void weeksSpanningTheYearBoundaryAreConsecutive() {
+		WeeklyStreaks streaks = WeeklyStreaks.of(List.of(LocalDate.of(2024, 12, 28), LocalDate.of(2025, 1, 2)),
+				LocalDate.of(2025, 1, 3));
+
+		assertEquals(2, streaks.current());
+	}
+
+	@Test
+	void noActivitiesMeansNoStreak() {
+		WeeklyStreaks streaks = WeeklyStreaks.of(List.of(), TODAY);
+
+		assertEquals(0, streaks.current());
+		assertEquals(0, streaks.longest());
+	}
+}
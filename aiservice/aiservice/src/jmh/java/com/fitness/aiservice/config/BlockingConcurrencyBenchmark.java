@@ -0,0 +1,99 @@
+package com.fitness.aiservice.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency ceiling of a blocking workload: time to finish a burst of
+ * in-flight tasks that each block for blocking-millis (a Gemini call, a Mongo or
+ * JPA round trip), on
+ *
+ * - platform: a pool of 200 platform threads, Tomcat's default server.tomcat.threads.max
+ * - virtual: one virtual thread per task, as with spring.threads.virtual.enabled
+ *
+ * Once in-flight passes the pool size the platform burst takes in-flight / 200
+ * rounds of blocking-millis, while the virtual burst stays near one. The virtual
+ * mode needs Java 21: run it from a -Pjava21 build on a Java 21 JDK, e.g.
+ * mvn -Pjmh,java21 test-compile exec:exec -Djmh.args=BlockingConcurrencyBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlockingConcurrencyBenchmark {
+
+	@Param({"platform", "virtual"})
+	public String threads;
+
+	@Param({"200", "1000", "5000"})
+	public int inFlight;
+
+	@Param("50")
+	public int blockingMillis;
+
+	private AsyncTaskExecutor executor;
+
+	@Setup
+	public void setUp() {
+		if (threads.equals("virtual")) {
+			if (Runtime.version().feature() < 21) {
+				throw new IllegalStateException("Virtual threads need Java 21, this is Java " + Runtime.version().feature());
+			}
+			SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("burst-");
+			virtual.setVirtualThreads(true);
+			executor = virtual;
+		} else {
+			ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+			pool.setCorePoolSize(200);
+			pool.setMaxPoolSize(200);
+			pool.setThreadNamePrefix("burst-");
+			pool.initialize();
+			pool.getThreadPoolExecutor().prestartAllCoreThreads();
+			executor = pool;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (executor instanceof ThreadPoolTaskExecutor pool) {
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public void burst() {
+		List<CompletableFuture<Void>> tasks = new ArrayList<>(inFlight);
+		for (int i = 0; i < inFlight; i++) {
+			tasks.add(CompletableFuture.runAsync(this::block, executor));
+		}
+		CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+	}
+
+	private void block() {
+		try {
+			Thread.sleep(blockingMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
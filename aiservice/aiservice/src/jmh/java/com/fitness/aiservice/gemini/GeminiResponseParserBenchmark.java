@@ -0,0 +1,62 @@
+package com.fitness.aiservice.gemini;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.dto.GeminiAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation (run with -prof gc) of turning the gemini-response.json
+ * test fixture into the parsed answer:
+ *
+ * - treeAndRegex: the parsing before GeminiResponseParser, a new ObjectMapper per
+ *   response, a tree of the envelope, regex fence stripping and a second tree of the answer
+ * - streamingParser: GeminiResponseParser.parseEnvelope and readAnswer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeminiResponseParserBenchmark {
+
+	private final GeminiResponseParser parser = new GeminiResponseParser();
+	private String response;
+
+	@Setup
+	public void setUp() throws IOException {
+		try (InputStream in = getClass().getResourceAsStream("/gemini-response.json")) {
+			response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Benchmark
+	public JsonNode treeAndRegex() throws IOException {
+		ObjectMapper mapper = new ObjectMapper();
+		JsonNode rootNode = mapper.readTree(response);
+		JsonNode textNode = rootNode.path("candidates").get(0).path("content").get("parts").get(0).path("text");
+		String jsonContent = textNode.asText().replaceAll("```json\\n", "")
+				.replaceAll("\\n```", "").trim();
+		return mapper.readTree(jsonContent);
+	}
+
+	@Benchmark
+	public GeminiAnswer streamingParser() throws IOException {
+		return parser.readAnswer(parser.parseEnvelope(response));
+	}
+}
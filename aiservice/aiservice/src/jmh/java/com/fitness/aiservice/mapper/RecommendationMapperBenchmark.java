@@ -0,0 +1,63 @@
+package com.fitness.aiservice.mapper;
+
+import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.model.Recommendation;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation (run with -prof gc) of Recommendation to RecommendationResponse,
+ * with the generated RecommendationMapper and with a default ModelMapper as the
+ * service used it before MapStruct.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationMapperBenchmark {
+
+	private final RecommendationMapper recommendationMapper = Mappers.getMapper(RecommendationMapper.class);
+	private final ModelMapper modelMapper = new ModelMapper();
+	private Recommendation recommendation;
+
+	@Setup
+	public void setUp() {
+		recommendation = Recommendation.builder()
+				.id("65e1f0a0c0ffee0000000002")
+				.userId("user-1")
+				.activityId("65e1f0a0c0ffee0000000001")
+				.type("RUNNING")
+				.recommendation("Overall: A steady 45 minute run.")
+				.improvements(List.of("Pace: Negative splits on the last third"))
+				.suggestions(List.of("Intervals: 6 x 400 m at 5k pace"))
+				.safety(List.of("Warm up for 10 minutes", "Stay hydrated"))
+				.createdAt(LocalDateTime.of(2025, 3, 1, 8, 0))
+				.build();
+	}
+
+	@Benchmark
+	public RecommendationResponse toResponseMapStruct() {
+		return recommendationMapper.toResponse(recommendation);
+	}
+
+	@Benchmark
+	public RecommendationResponse toResponseModelMapper() {
+		return modelMapper.map(recommendation, RecommendationResponse.class);
+	}
+}
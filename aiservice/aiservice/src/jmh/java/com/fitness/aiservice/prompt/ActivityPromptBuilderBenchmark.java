@@ -0,0 +1,103 @@
+package com.fitness.aiservice.prompt;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation (run with -prof gc) of rendering one activity prompt:
+ *
+ * - stringFormat: the String.format text block the prompt was built with before
+ *   the templates
+ * - promptBuilder: ActivityPromptBuilder with the default activity-v1 template
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityPromptBuilderBenchmark {
+
+	private final ActivityPromptBuilder builder = new ActivityPromptBuilder(new DefaultResourceLoader(), new PromptProperties());
+	private Activity activity;
+
+	@Setup
+	public void setUp() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("distanceKm", 7.9);
+		metrics.put("averageHeartRate", 148);
+		metrics.put("elevationGainM", 64);
+		activity = new Activity();
+		activity.setActivityId("65e1f0a0c0ffee0000000001");
+		activity.setUserId("user-1");
+		activity.setActivityType(ActivityType.RUNNING);
+		activity.setDuration(45);
+		activity.setCaloriesBurned(520);
+		activity.setAdditionalMetrics(metrics);
+	}
+
+	@Benchmark
+	public String stringFormat() {
+		return String.format("""
+				Analyse the fitness activity and provide detailed recommendations in following EXACT json format:
+				{
+				    "analysis":{
+				        "overall":  "Overall analysis here",
+				        "pace": "Pace analysis here",
+				        "heartRate": "Heart rate analysis here",
+				        "caloriesBurned": "Calories analysis here"
+				},
+				"improvements": [
+				{
+				    "area": "Area name",
+				    "recommendation": "Detailed recommendation"
+				}
+				],
+				"suggestions":[
+				{
+				    "workout": "Workout name",
+				    "description": "Detailed workout description"
+				}
+				],
+				"safety":[
+				    "Safety point 1",
+				    "Safety point 2"
+				    ]
+				}
+
+				Analyze this activity:
+				Activity Type: %s
+				Duration: %d minutes
+				Calories Burned: %d
+				Additional Metrics: %s
+
+				Detailed analysis focusing on performance, improvements, next workout suggestions, and safety guidelines.
+				Ensure the response follows the EXACT JSON format shown above.
+
+				""",
+				activity.getActivityType(),
+				activity.getDuration(),
+				activity.getCaloriesBurned(),
+				activity.getAdditionalMetrics());
+	}
+
+	@Benchmark
+	public String promptBuilder() {
+		return builder.build(activity);
+	}
+}
@@ -0,0 +1,153 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.config.CacheConfig;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Activities/sec through ActivityMessageListener for one poll of BATCH records,
+ * with Gemini replaced by a stub that sleeps gemini-latency-millis per call (and
+ * a quarter of that for every further activity in a prompt batch, for the longer
+ * answer). Recommendations are generated from scratch each time; the repository
+ * is a stub, so only the listener's scheduling is compared:
+ *
+ * - sequential: the listener before batch consumption, one record, one call and one save at a time
+ * - fan-out: the batch listener, one call per activity on the 8 recommendationExecutor threads
+ * - fan-out-batched: the same with prompt-batch-size 5
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ActivityMessageListenerBenchmark {
+
+	private static final int BATCH = 40;
+
+	@Param({"sequential", "fan-out", "fan-out-batched"})
+	public String mode;
+
+	@Param("20")
+	public int geminiLatencyMillis;
+
+	private ThreadPoolTaskExecutor recommendationExecutor;
+	private ActivityAIService activityAIService;
+	private RecommendationRepository recommendationRepository;
+	private ActivityMessageListener listener;
+	private List<ConsumerRecord<String, Activity>> records;
+
+	@Setup
+	public void setUp() {
+		recommendationExecutor = new ThreadPoolTaskExecutor();
+		recommendationExecutor.setCorePoolSize(8);
+		recommendationExecutor.setMaxPoolSize(8);
+		recommendationExecutor.setThreadNamePrefix("recommendation-");
+		recommendationExecutor.initialize();
+
+		activityAIService = new SlowActivityAIService(geminiLatencyMillis);
+		// Stub-only: no invocations are recorded, findActivityIdsIn answers an empty list
+		recommendationRepository = mock(RecommendationRepository.class, withSettings().stubOnly());
+		listener = new ActivityMessageListener(activityAIService, recommendationRepository, recommendationExecutor,
+				new ConcurrentMapCacheManager(CacheConfig.USER_RECOMMENDATIONS), new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(listener, "promptBatchSize", mode.equals("fan-out-batched") ? 5 : 1);
+
+		records = new ArrayList<>(BATCH);
+		for (int i = 0; i < BATCH; i++) {
+			Activity activity = new Activity();
+			activity.setActivityId("activity-" + i);
+			activity.setUserId("user-" + i % 10);
+			activity.setActivityType(ActivityType.RUNNING);
+			activity.setDuration(30 + i);
+			activity.setCaloriesBurned(300 + 5 * i);
+			activity.setStartTime(LocalDateTime.of(2025, 3, 1, 7, 0).plusDays(i));
+			records.add(new ConsumerRecord<>("activity-events", 0, i, activity.getUserId(), activity));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		recommendationExecutor.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void consumePoll() {
+		if (mode.equals("sequential")) {
+			for (ConsumerRecord<String, Activity> record : records) {
+				Recommendation recommendation = activityAIService.generateRecommendation(record.value());
+				recommendationRepository.save(recommendation);
+			}
+		} else {
+			listener.onActivityEvents(records);
+		}
+	}
+
+	static class SlowActivityAIService extends ActivityAIService {
+
+		private final int latencyMillis;
+
+		SlowActivityAIService(int latencyMillis) {
+			super(null, null, null, null);
+			this.latencyMillis = latencyMillis;
+		}
+
+		@Override
+		public Recommendation generateRecommendation(Activity activity) {
+			sleep(latencyMillis);
+			return recommendation(activity);
+		}
+
+		@Override
+		public List<Recommendation> generateRecommendations(List<Activity> activities) {
+			sleep(latencyMillis + (activities.size() - 1) * latencyMillis / 4);
+			return activities.stream().map(SlowActivityAIService::recommendation).toList();
+		}
+
+		private static Recommendation recommendation(Activity activity) {
+			return Recommendation.builder()
+					.activityId(activity.getActivityId())
+					.userId(activity.getUserId())
+					.type(activity.getActivityType().name())
+					.recommendation("Keep a steady pace")
+					.createdAt(LocalDateTime.now())
+					.build();
+		}
+
+		private static void sleep(long millis) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
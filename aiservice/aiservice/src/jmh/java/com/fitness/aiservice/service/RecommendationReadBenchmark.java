@@ -0,0 +1,153 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.config.CacheConfig;
+import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.mapper.RecommendationMapper;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Latency of the two cached recommendation reads, GET /user/{userId} and
+ * GET /activity/{activityId}, through the @Cacheable proxy of
+ * RecommendationServiceImpl with the Caffeine spec of aiservice.yaml. Mongo is
+ * the in-process mongo-java-server holding USERS users with PER_USER
+ * recommendations each.
+ *
+ * - cold: the entry is evicted before every read, so each one goes to Mongo
+ *   (the reads before the caches, plus the cache miss)
+ * - warm: every entry is read once during setup, so each read is a cache hit
+ *
+ * mongo-java-server scans its collections, so the cold numbers are higher than
+ * against an indexed MongoDB; the warm numbers don't depend on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationReadBenchmark {
+
+	private static final int USERS = 100;
+	private static final int PER_USER = 20;
+
+	@Param({"cold", "warm"})
+	public String cache;
+
+	private MongoServer mongoServer;
+	private MongoClient client;
+	private AnnotationConfigApplicationContext context;
+	private RecommendationService recommendationService;
+	private Cache userRecommendations;
+	private Cache activityRecommendations;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		mongoServer = new MongoServer(new MemoryBackend());
+		client = MongoClients.create(mongoServer.bindAndGetConnectionString());
+		MongoTemplate mongoTemplate = new MongoTemplate(client, "recommendation_read_benchmark");
+		RecommendationRepository recommendationRepository = new MongoRepositoryFactory(mongoTemplate)
+				.getRepository(RecommendationRepository.class);
+
+		List<Recommendation> recommendations = new ArrayList<>(USERS * PER_USER);
+		LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 8, 0);
+		for (int user = 0; user < USERS; user++) {
+			for (int i = 0; i < PER_USER; i++) {
+				recommendations.add(Recommendation.builder()
+						.userId("user-" + user)
+						.activityId("activity-" + user + "-" + i)
+						.type("RUNNING")
+						.recommendation("Overall: A steady run with an even pace over the whole distance.")
+						.improvements(List.of("Pace: Negative splits on the last third"))
+						.suggestions(List.of("Intervals: 6 x 400 m at 5k pace"))
+						.safety(List.of("Warm up for 10 minutes", "Stay hydrated"))
+						.createdAt(createdAt.minusDays(i))
+						.build());
+			}
+		}
+		recommendationRepository.saveAll(recommendations);
+
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager(CacheConfig.ACTIVITY_RECOMMENDATIONS, CacheConfig.USER_RECOMMENDATIONS);
+		cacheManager.setCacheSpecification("maximumSize=10000,expireAfterWrite=10m,recordStats");
+
+		context = new AnnotationConfigApplicationContext();
+		context.registerBean(CacheManager.class, () -> cacheManager);
+		context.registerBean(MongoTemplate.class, () -> mongoTemplate);
+		context.registerBean(RecommendationRepository.class, () -> recommendationRepository);
+		context.registerBean(RecommendationMapper.class, () -> Mappers.getMapper(RecommendationMapper.class));
+		context.registerBean(ObjectMapper.class, () -> new ObjectMapper());
+		// Not reached by the reads
+		context.registerBean(ActivityAIService.class, () -> mock(ActivityAIService.class));
+		context.registerBean(ActivityLookup.class, () -> mock(ActivityLookup.class));
+		context.register(CacheConfig.class, RecommendationServiceImpl.class);
+		context.refresh();
+
+		recommendationService = context.getBean(RecommendationService.class);
+		userRecommendations = cacheManager.getCache(CacheConfig.USER_RECOMMENDATIONS);
+		activityRecommendations = cacheManager.getCache(CacheConfig.ACTIVITY_RECOMMENDATIONS);
+		if (cache.equals("warm")) {
+			recommendations.forEach(recommendation -> {
+				recommendationService.getUserRecommendations(recommendation.getUserId());
+				recommendationService.getActivityRecommendation(recommendation.getActivityId());
+			});
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+		client.close();
+		mongoServer.shutdownNow();
+	}
+
+	@Benchmark
+	public List<RecommendationResponse> userRecommendations() {
+		String userId = "user-" + next++ % USERS;
+		if (cache.equals("cold")) {
+			userRecommendations.evict(userId);
+		}
+		return recommendationService.getUserRecommendations(userId);
+	}
+
+	@Benchmark
+	public RecommendationResponse activityRecommendation() {
+		int n = next++;
+		String activityId = "activity-" + n % USERS + "-" + n / USERS % PER_USER;
+		if (cache.equals("cold")) {
+			activityRecommendations.evict(activityId);
+		}
+		return recommendationService.getActivityRecommendation(activityId);
+	}
+}
@@ -1,15 +1,58 @@
 package com.fitness.aiservice.config;
 
-import org.modelmapper.ModelMapper;
+import com.fitness.aiservice.prompt.PromptProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 @EnableMongoAuditing
+@EnableConfigurationProperties(PromptProperties.class)
 public class AppConfig {
 
+    /**
+     * ACTIVITYSERVICE through Eureka. The load balancer is a filter on this client
+     * only; the shared WebClient.Builder also builds the Gemini client.
+     */
     @Bean
-    public ModelMapper modelMapper(){return new ModelMapper();}
+    public WebClient activityServiceWebClient(WebClient.Builder webClientBuilder, ReactorLoadBalancerExchangeFilterFunction loadBalancer){
+        return webClientBuilder.baseUrl("http://ACTIVITYSERVICE").filter(loadBalancer).build();
+    }
+
+    /**
+     * Bounded pool the Kafka batch listener fans recommendation generation out to.
+     * Sized for concurrent Gemini calls, which spend nearly all their time waiting on I/O.
+     */
+    @Bean
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor recommendationExecutor(@Value("${ai.recommendation.max-concurrency:8}") int maxConcurrency){
+        ThreadPoolTaskExecutor executor=new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(Integer.MAX_VALUE);
+        executor.setThreadNamePrefix("recommendation-");
+        return executor;
+    }
+
+    /**
+     * With spring.threads.virtual.enabled (Java 21+), one virtual thread per
+     * prompt batch instead of a pool; the same limit on calls in flight.
+     */
+    @Bean("recommendationExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualRecommendationExecutor(@Value("${ai.recommendation.max-concurrency:8}") int maxConcurrency){
+        SimpleAsyncTaskExecutor executor=new SimpleAsyncTaskExecutor("recommendation-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(maxConcurrency);
+        return executor;
+    }
 
 }
@@ -0,0 +1,41 @@
+package com.fitness.aiservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Read-through caches for recommendation lookups, backed by Caffeine
+ * (spring.cache.caffeine.spec). A stored recommendation never changes, so
+ * activity-keyed entries are never evicted; a user's list is evicted whenever
+ * a new recommendation for that user is stored.
+ *
+ * The caches are per instance and only the instance that stores a
+ * recommendation evicts the list, so user lists get their own, shorter
+ * expiry (ai.recommendation.user-cache.ttl): it bounds how long another
+ * instance can serve a list without the new recommendation.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ACTIVITY_RECOMMENDATIONS="activityRecommendations";
+    public static final String USER_RECOMMENDATIONS="userRecommendations";
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> userRecommendationsExpiry(
+            @Value("${ai.recommendation.user-cache.ttl:30s}") Duration ttl,
+            @Value("${ai.recommendation.user-cache.maximum-size:10000}") long maximumSize){
+        return cacheManager->cacheManager.registerCustomCache(USER_RECOMMENDATIONS,Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+}
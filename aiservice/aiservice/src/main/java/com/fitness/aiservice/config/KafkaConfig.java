@@ -0,0 +1,43 @@
+package com.fitness.aiservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class KafkaConfig {
+
+    /**
+     * Error handler of the activity-events batch listener (Boot applies it to the
+     * listener container factory). When the listener throws BatchListenerFailedException
+     * the offsets before the failed record are committed and the rest of the batch is
+     * redelivered, with exponential backoff; once the retries are used up the failed
+     * record is logged, counted as activity.events.recovered and skipped, so one bad
+     * activity can't stall its partition. Records the ErrorHandlingDeserializer could
+     * not read are not retried.
+     */
+    @Bean
+    public DefaultErrorHandler activityEventsErrorHandler(MeterRegistry meterRegistry,
+                                                          @Value("${kafka.listener.retry.max-retries:3}") int maxRetries,
+                                                          @Value("${kafka.listener.retry.initial-backoff:1s}") Duration initialBackoff,
+                                                          @Value("${kafka.listener.retry.max-backoff:30s}") Duration maxBackoff){
+        Counter recovered=Counter.builder("activity.events.recovered")
+                .description("Activity records skipped after their retries were exhausted")
+                .register(meterRegistry);
+        ExponentialBackOffWithMaxRetries backOff=new ExponentialBackOffWithMaxRetries(maxRetries);
+        backOff.setInitialInterval(initialBackoff.toMillis());
+        backOff.setMaxInterval(maxBackoff.toMillis());
+        return new DefaultErrorHandler((record,e)->{
+            recovered.increment();
+            log.error("Skipping activity record {}-{}@{} (key {})",record.topic(),record.partition(),record.offset(),record.key(),e);
+        },backOff);
+    }
+}
@@ -1,13 +1,21 @@
 package com.fitness.aiservice.controller;
 
+import com.fitness.aiservice.dto.RecommendationPage;
 import com.fitness.aiservice.dto.RecommendationResponse;
 import com.fitness.aiservice.service.RecommendationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 
@@ -23,9 +31,33 @@ public class Recommendation {
         return ResponseEntity.ok(recommendationService.getUserRecommendations(userId));
     }
 
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<RecommendationPage<?>> getUserRecommendationPage(@PathVariable String userId,
+                                                                           @RequestParam(required = false) String cursor,
+                                                                           @RequestParam(defaultValue = "20") int size,
+                                                                           @RequestParam(defaultValue = "false") boolean summary){
+        return ResponseEntity.ok(summary
+                ? recommendationService.getUserRecommendationSummaries(userId,cursor,size)
+                : recommendationService.getUserRecommendationsPage(userId,cursor,size));
+    }
+
+    @GetMapping(value = "/user/{userId}/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUserRecommendations(@PathVariable String userId,
+                                                                           @RequestParam(defaultValue = "false") boolean summary){
+        StreamingResponseBody body=out->recommendationService.exportUserRecommendations(userId,summary,out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @GetMapping("/activity/{activityId}")
     public ResponseEntity<RecommendationResponse> getActivityRecommendation(@PathVariable String activityId){
         return ResponseEntity.ok(recommendationService.getActivityRecommendation(activityId));
     }
 
+    // The activity is loaded from ACTIVITYSERVICE and must belong to the caller
+    @PostMapping(value = "/activity/{activityId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamActivityRecommendation(@PathVariable String activityId,
+                                                                      @RequestHeader("X-User-ID") String userId){
+        return recommendationService.streamActivityRecommendation(userId,activityId);
+    }
+
 }
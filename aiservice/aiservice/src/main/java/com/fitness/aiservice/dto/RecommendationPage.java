@@ -0,0 +1,18 @@
+package com.fitness.aiservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a user's recommendation history, full or summaries. nextCursor is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecommendationPage<T> {
+    private List<T> recommendations;
+    private String nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.fitness.aiservice.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-screen view of a recommendation: the headline is the start of the
+ * recommendation text, cut by Mongo before it leaves the database.
+ */
+@Data
+public class RecommendationSummary {
+
+    private String id;
+    private String activityId;
+    private String type;
+    private LocalDateTime createdAt;
+    private String headline;
+}
@@ -0,0 +1,174 @@
+package com.fitness.aiservice.gemini;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Concurrency limit for Gemini calls that adapts to observed latency (AIMD):
+ * every fast, successful call grows the limit by 1/limit (about +1 per round
+ * of calls), a slow call shrinks it by 10%, and a dropped call (429, 5xx or
+ * timeout) shrinks it by 30%.
+ *
+ * Callers over the limit wait. While anyone waits the limiter reports itself
+ * saturated, counted as gemini.concurrency.saturations.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition capacity = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private boolean saturated;
+    private final Object listenerMonitor = new Object();
+    private boolean notifiedSaturated;
+    private volatile Consumer<Boolean> saturationListener = saturated -> { };
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyTarget) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.latencyTargetNanos = latencyTarget.toNanos();
+    }
+
+    /**
+     * @param listener called with true when callers start waiting and false once capacity is back
+     */
+    public void onSaturationChange(Consumer<Boolean> listener) {
+        this.saturationListener = listener;
+    }
+
+    /**
+     * Blocks until the call may start.
+     *
+     * @throws TimeoutException if no capacity became available within the timeout
+     */
+    public void acquire(Duration timeout) throws TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            boolean changed = false;
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        if (saturated && waiting == 0) {
+                            saturated = false;
+                            changed = true;
+                        }
+                        throw new TimeoutException("No Gemini capacity within " + timeout);
+                    }
+                    if (!saturated) {
+                        saturated = true;
+                        changed = true;
+                        log.debug("Gemini concurrency saturated at limit {}", (int) limit);
+                        // Tell the listener before waiting, outside the lock
+                        break;
+                    }
+                    waiting++;
+                    try {
+                        capacity.awaitNanos(remaining);
+                    } finally {
+                        waiting--;
+                    }
+                }
+                if (inFlight < (int) limit) {
+                    inFlight++;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+                if (changed) {
+                    notifySaturation();
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends a call and adapts the limit to how it went.
+     *
+     * @param latency how long the call took
+     * @param dropped true if the provider rejected or timed out the call
+     */
+    public void release(Duration latency, boolean dropped) {
+        boolean changed = false;
+        lock.lock();
+        try {
+            inFlight--;
+            if (dropped) {
+                limit = Math.max(minLimit, limit * 0.7);
+            } else if (latency.toNanos() > latencyTargetNanos) {
+                limit = Math.max(minLimit, limit * 0.9);
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            if (inFlight < (int) limit) {
+                capacity.signalAll();
+                if (saturated && waiting == 0) {
+                    saturated = false;
+                    changed = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+            if (changed) {
+                notifySaturation();
+            }
+        }
+    }
+
+    /**
+     * Passes the current saturation state to the listener if it changed since the
+     * last call. Runs after the lock is released, so a slow listener never holds
+     * up acquire or release; the monitor keeps notifications in order.
+     */
+    private void notifySaturation() {
+        synchronized (listenerMonitor) {
+            boolean current;
+            lock.lock();
+            try {
+                current = saturated;
+            } finally {
+                lock.unlock();
+            }
+            if (current == notifiedSaturated) {
+                return;
+            }
+            notifiedSaturated = current;
+            try {
+                saturationListener.accept(current);
+            } catch (RuntimeException e) {
+                log.warn("Saturation listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
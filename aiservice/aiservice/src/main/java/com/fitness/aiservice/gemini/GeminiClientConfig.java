@@ -0,0 +1,73 @@
+package com.fitness.aiservice.gemini;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Wiring of the Gemini client: a dedicated, bounded connection pool with
+ * connect/response timeouts, the request rate limiter and the adaptive
+ * concurrency limiter shared by all Gemini calls of this instance.
+ */
+@Configuration
+@EnableConfigurationProperties(GeminiClientProperties.class)
+public class GeminiClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider geminiConnectionProvider(GeminiClientProperties properties){
+        GeminiClientProperties.Pool pool=properties.getPool();
+        return ConnectionProvider.builder("gemini")
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient geminiWebClient(WebClient.Builder webClientBuilder, ConnectionProvider geminiConnectionProvider,
+                                     GeminiClientProperties properties){
+        HttpClient httpClient=HttpClient.create(geminiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,(int) properties.getConnectTimeout().toMillis())
+                .responseTimeout(properties.getResponseTimeout());
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    @Bean
+    public TokenBucketRateLimiter geminiRateLimiter(GeminiClientProperties properties){
+        return new TokenBucketRateLimiter(properties.getRateLimit().getRequestsPerMinute(),properties.getRateLimit().getBurst());
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter geminiConcurrencyLimiter(GeminiClientProperties properties, MeterRegistry meterRegistry){
+        GeminiClientProperties.Concurrency concurrency=properties.getConcurrency();
+        AdaptiveConcurrencyLimiter limiter=new AdaptiveConcurrencyLimiter(concurrency.getInitialLimit(),
+                concurrency.getMinLimit(),concurrency.getMaxLimit(),concurrency.getLatencyTarget());
+        Gauge.builder("gemini.concurrency.limit",limiter,AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit of concurrent Gemini calls")
+                .register(meterRegistry);
+        Gauge.builder("gemini.concurrency.in-flight",limiter,AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Gemini calls currently in flight")
+                .register(meterRegistry);
+        Counter saturations=Counter.builder("gemini.concurrency.saturations")
+                .description("Times callers started waiting for Gemini concurrency")
+                .register(meterRegistry);
+        limiter.onSaturationChange(saturated->{
+            if(saturated){
+                saturations.increment();
+            }
+        });
+        return limiter;
+    }
+}
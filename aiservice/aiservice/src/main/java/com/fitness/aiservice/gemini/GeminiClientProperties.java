@@ -0,0 +1,58 @@
+package com.fitness.aiservice.gemini;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the Gemini client (gemini.client.*): connection pool, timeouts,
+ * rate limit, retries and the adaptive concurrency limit.
+ */
+@Data
+@ConfigurationProperties(prefix = "gemini.client")
+public class GeminiClientProperties {
+
+    private Pool pool = new Pool();
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration responseTimeout = Duration.ofSeconds(60);
+    // Upper bound for one attempt, including waiting for a connection from the pool
+    private Duration callTimeout = Duration.ofSeconds(75);
+    private RateLimit rateLimit = new RateLimit();
+    private Retry retry = new Retry();
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    public static class Pool {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(30);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class RateLimit {
+        // Sustained rate matched to the provider quota
+        private int requestsPerMinute = 60;
+        // Requests allowed back to back before the rate applies
+        private int burst = 5;
+    }
+
+    @Data
+    public static class Retry {
+        private int maxRetries = 3;
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(20);
+        private double jitter = 0.5;
+    }
+
+    @Data
+    public static class Concurrency {
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 32;
+        // Calls slower than this count as a congestion signal
+        private Duration latencyTarget = Duration.ofSeconds(20);
+        private Duration acquireTimeout = Duration.ofMinutes(2);
+    }
+}
@@ -0,0 +1,180 @@
+package com.fitness.aiservice.gemini;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fitness.aiservice.dto.GeminiAnswer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Parses Gemini generateContent responses without building a tree of the
+ * envelope: a single streaming pass pulls candidates[0].content.parts[0].text
+ * and the usageMetadata token counts and skips everything else. The answer
+ * text is stripped of its markdown code fence by index arithmetic and bound
+ * straight into GeminiAnswer by a reader prepared once.
+ */
+@Component
+public class GeminiResponseParser {
+
+    private static final String FENCE="```";
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader answerReader;
+    private final ObjectReader batchAnswerReader;
+
+    public GeminiResponseParser() {
+        ObjectMapper mapper=new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,false);
+        this.jsonFactory=mapper.getFactory();
+        this.answerReader=mapper.readerFor(GeminiAnswer.class);
+        this.batchAnswerReader=mapper.readerFor(new TypeReference<List<GeminiAnswer>>() {});
+    }
+
+    /**
+     * Text and token usage of one generateContent response (or one streamed chunk).
+     */
+    public record Envelope(String text, long promptTokens, long candidatesTokens, long totalTokens) {
+
+        /**
+         * @return an envelope without text or usage, e.g. for a response that could not be read
+         */
+        public static Envelope empty(){
+            return new Envelope(null,0,0,0);
+        }
+    }
+
+    public Envelope parseEnvelope(String response) throws IOException {
+        String text=null;
+        long promptTokens=0;
+        long candidatesTokens=0;
+        long totalTokens=0;
+        try(JsonParser parser=jsonFactory.createParser(response)){
+            if(parser.nextToken()!=JsonToken.START_OBJECT){
+                throw new IOException("Gemini response is not a JSON object");
+            }
+            while(parser.nextToken()==JsonToken.FIELD_NAME){
+                String name=parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "candidates" -> text=firstElement(parser,candidate->
+                            field(candidate,"content",content->
+                                    field(content,"parts",parts->
+                                            firstElement(parts,part->field(part,"text",JsonParser::getValueAsString)))));
+                    case "usageMetadata" -> {
+                        while(parser.nextToken()==JsonToken.FIELD_NAME){
+                            String usage=parser.currentName();
+                            parser.nextToken();
+                            switch (usage) {
+                                case "promptTokenCount" -> promptTokens=parser.getValueAsLong();
+                                case "candidatesTokenCount" -> candidatesTokens=parser.getValueAsLong();
+                                case "totalTokenCount" -> totalTokens=parser.getValueAsLong();
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new Envelope(text,promptTokens,candidatesTokens,totalTokens);
+    }
+
+    /**
+     * Binds the answer of an envelope already read by parseEnvelope, so the
+     * response is parsed once for both its usage and its answer.
+     */
+    public GeminiAnswer readAnswer(Envelope envelope) throws IOException {
+        return readAnswerText(requireText(envelope));
+    }
+
+    public List<GeminiAnswer> readBatchAnswer(Envelope envelope) throws IOException {
+        return batchAnswerReader.readValue(stripCodeFence(requireText(envelope)));
+    }
+
+    /**
+     * Binds answer text that was already taken out of the envelope, e.g. the concatenated chunks of a stream.
+     */
+    public GeminiAnswer readAnswerText(String answerText) throws IOException {
+        return answerReader.readValue(stripCodeFence(answerText));
+    }
+
+    private String requireText(Envelope envelope) throws IOException {
+        String text=envelope.text();
+        if(text==null){
+            throw new IOException("Gemini response has no candidate text");
+        }
+        return text;
+    }
+
+    /**
+     * Removes surrounding whitespace and a ```json ... ``` fence, if present.
+     */
+    static String stripCodeFence(String text) {
+        int start=0;
+        int end=text.length();
+        while(start<end && Character.isWhitespace(text.charAt(start))){
+            start++;
+        }
+        while(end>start && Character.isWhitespace(text.charAt(end-1))){
+            end--;
+        }
+        if(text.startsWith(FENCE,start)){
+            int newline=text.indexOf('\n',start);
+            start=newline<0 || newline>=end ? start+FENCE.length() : newline+1;
+        }
+        if(end-start>=FENCE.length() && text.startsWith(FENCE,end-FENCE.length())){
+            end-=FENCE.length();
+            while(end>start && Character.isWhitespace(text.charAt(end-1))){
+                end--;
+            }
+        }
+        return start==0 && end==text.length() ? text : text.substring(start,end);
+    }
+
+    @FunctionalInterface
+    private interface ValueReader<T> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    // Parser is on START_OBJECT; consumes the object and reads the named field's value
+    private static <T> T field(JsonParser parser, String name, ValueReader<T> reader) throws IOException {
+        if(parser.currentToken()!=JsonToken.START_OBJECT){
+            parser.skipChildren();
+            return null;
+        }
+        T value=null;
+        while(parser.nextToken()==JsonToken.FIELD_NAME){
+            boolean match=name.equals(parser.currentName());
+            parser.nextToken();
+            if(match && value==null){
+                value=reader.read(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    // Parser is on START_ARRAY; consumes the array and reads its first element
+    private static <T> T firstElement(JsonParser parser, ValueReader<T> reader) throws IOException {
+        if(parser.currentToken()!=JsonToken.START_ARRAY){
+            parser.skipChildren();
+            return null;
+        }
+        T value=null;
+        if(parser.nextToken()!=JsonToken.END_ARRAY){
+            value=reader.read(parser);
+            while(parser.nextToken()!=JsonToken.END_ARRAY){
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,58 @@
+package com.fitness.aiservice.gemini;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm: instead
+ * of counting tokens it keeps the theoretical time at which the bucket is empty
+ * again. A caller reserves the next slot with one CAS and is told how long to
+ * wait for it, so permits are handed out in arrival order without blocking.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier clock;
+    private final AtomicLong emptyAt;
+
+    public TokenBucketRateLimiter(int requestsPerMinute, int burst) {
+        this(requestsPerMinute, burst, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(int requestsPerMinute, int burst, LongSupplier clock) {
+        this.intervalNanos = Duration.ofMinutes(1).toNanos() / Math.max(requestsPerMinute, 1);
+        this.burstNanos = intervalNanos * Math.max(burst, 1);
+        this.clock = clock;
+        this.emptyAt = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Reserves one permit.
+     *
+     * @return how long the caller has to wait before using the permit
+     */
+    public Duration reserve() {
+        while (true) {
+            long now = clock.getAsLong();
+            long current = emptyAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (emptyAt.compareAndSet(current, next)) {
+                return Duration.ofNanos(Math.max(0, next - now - burstNanos));
+            }
+        }
+    }
+
+    /**
+     * @return Mono completing once a permit is available
+     */
+    public Mono<Void> acquire() {
+        return Mono.defer(() -> {
+            Duration wait = reserve();
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+}
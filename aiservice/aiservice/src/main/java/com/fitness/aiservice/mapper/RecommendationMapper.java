@@ -0,0 +1,15 @@
+package com.fitness.aiservice.mapper;
+
+import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.model.Recommendation;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+
+/**
+ * Recommendation mappings, generated at compile time by MapStruct (plain getter/setter calls, no reflection).
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface RecommendationMapper {
+
+    RecommendationResponse toResponse(Recommendation recommendation);
+}
@@ -1,5 +1,6 @@
 package com.fitness.aiservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -23,6 +24,9 @@ public class Activity {
     private LocalDateTime createdAt;
     @LastModifiedDate
     private LocalDateTime updatedAt;
+    // From the X-Correlation-ID record header, not part of the event payload
+    @JsonIgnore
+    private String correlationId;
 
 
 }
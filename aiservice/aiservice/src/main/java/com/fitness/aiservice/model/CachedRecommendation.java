@@ -0,0 +1,25 @@
+package com.fitness.aiservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mongo tier of the recommendation cache, keyed by the activity fingerprint.
+ * Expired through a TTL index on createdAt.
+ */
+@Document(collection = "recommendation_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedRecommendation {
+
+    @Id
+    private String fingerprint;
+    private RecommendationContent content;
+    private LocalDateTime createdAt;
+}
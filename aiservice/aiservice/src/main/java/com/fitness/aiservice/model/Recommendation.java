@@ -4,12 +4,16 @@ import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Document(collection = "recommendations")
+// Serves the per-user history, newest first, including its keyset pagination
+@CompoundIndex(name = "user_createdAt_id", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
 @Data
 @Builder
 public class Recommendation {
@@ -17,6 +21,8 @@ public class Recommendation {
     @Id
     private String id;
     private String userId;
+    // One recommendation per activity, even if the listener and the stream endpoint race
+    @Indexed(unique = true)
     private String activityId;
     private String recommendation;
     private String type;
@@ -0,0 +1,112 @@
+package com.fitness.aiservice.prompt;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds Gemini prompts from precompiled templates. All templates are loaded
+ * and compiled at startup; rendering reuses a per-thread builder.
+ *
+ * The instructions come before any activity data, so every prompt of a
+ * template version starts with the same bytes and provider-side prefix caching
+ * can reuse them.
+ */
+@Component
+@Slf4j
+public class ActivityPromptBuilder {
+
+    private static final String EACH="{{#each}}";
+    private static final String END_EACH="{{/each}}";
+    private static final int MAX_RETAINED_CAPACITY=64*1024;
+
+    // Pays off on pooled threads; on virtual threads (one per task) it amounts to one builder per prompt
+    private static final ThreadLocal<StringBuilder> BUFFER=ThreadLocal.withInitial(()->new StringBuilder(4096));
+
+    private final ResourceLoader resourceLoader;
+    private final Map<String,PromptTemplate> compiled=new HashMap<>();
+    private final PromptTemplate defaultTemplate;
+    private final Map<ActivityType,PromptTemplate> templatesByType=new EnumMap<>(ActivityType.class);
+    private final PromptTemplate batchHeader;
+    private final PromptTemplate batchItem;
+    private final PromptTemplate batchFooter;
+
+    public ActivityPromptBuilder(ResourceLoader resourceLoader, PromptProperties properties) {
+        this.resourceLoader=resourceLoader;
+        this.defaultTemplate=single(properties.getDefaultVersion());
+        properties.getVersions().forEach((type,version)->templatesByType.put(type,single(version)));
+
+        String batch=load("activities-"+properties.getBatchVersion());
+        int each=batch.indexOf(EACH);
+        int endEach=batch.indexOf(END_EACH);
+        if(each<0 || endEach<each){
+            throw new IllegalStateException("Batch prompt "+properties.getBatchVersion()+" needs a "+EACH+" ... "+END_EACH+" section");
+        }
+        String version=properties.getBatchVersion();
+        this.batchHeader=PromptTemplate.compile(version,batch.substring(0,each));
+        this.batchItem=PromptTemplate.compile(version,batch.substring(each+EACH.length(),endEach));
+        this.batchFooter=PromptTemplate.compile(version,batch.substring(endEach+END_EACH.length()));
+        if(!batchHeader.isLiteral() || !batchFooter.isLiteral()){
+            throw new IllegalStateException("Batch prompt "+version+" has placeholders outside its "+EACH+" section");
+        }
+        log.info("Prompt templates: default {}, overrides {}, batch {}",defaultTemplate.getVersion(),properties.getVersions(),version);
+    }
+
+    public String build(Activity activity) {
+        StringBuilder prompt=buffer();
+        template(activity.getActivityType()).render(activity,prompt);
+        return release(prompt);
+    }
+
+    public String buildBatch(List<Activity> activities) {
+        StringBuilder prompt=buffer();
+        batchHeader.render(null,prompt);
+        for(Activity activity:activities){
+            batchItem.render(activity,prompt);
+        }
+        batchFooter.render(null,prompt);
+        return release(prompt);
+    }
+
+    public PromptTemplate template(ActivityType activityType) {
+        return templatesByType.getOrDefault(activityType,defaultTemplate);
+    }
+
+    private PromptTemplate single(String version) {
+        return compiled.computeIfAbsent(version,name->PromptTemplate.compile(name,load("activity-"+name)));
+    }
+
+    private String load(String name) {
+        try(InputStream in=resourceLoader.getResource("classpath:prompts/"+name+".txt").getInputStream()){
+            return StreamUtils.copyToString(in,StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Prompt template prompts/"+name+".txt not found",e);
+        }
+    }
+
+    private static StringBuilder buffer() {
+        StringBuilder prompt=BUFFER.get();
+        prompt.setLength(0);
+        return prompt;
+    }
+
+    private static String release(StringBuilder prompt) {
+        String text=prompt.toString();
+        if(prompt.capacity()>MAX_RETAINED_CAPACITY){
+            // Don't keep an unusually large batch buffer alive per thread
+            BUFFER.remove();
+        }
+        return text;
+    }
+}
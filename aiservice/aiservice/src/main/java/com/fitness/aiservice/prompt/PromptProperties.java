@@ -0,0 +1,23 @@
+package com.fitness.aiservice.prompt;
+
+import com.fitness.aiservice.model.ActivityType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Prompt template versions (ai.prompt.*). A version names the classpath
+ * templates prompts/activity-{version}.txt (one activity) and
+ * prompts/activities-{version}.txt (batch prompt).
+ */
+@Data
+@ConfigurationProperties(prefix = "ai.prompt")
+public class PromptProperties {
+
+    private String defaultVersion = "v1";
+    // Per-type overrides of the single-activity template
+    private Map<ActivityType,String> versions = new EnumMap<>(ActivityType.class);
+    private String batchVersion = "v1";
+}
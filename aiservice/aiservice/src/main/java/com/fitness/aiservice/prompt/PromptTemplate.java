@@ -0,0 +1,129 @@
+package com.fitness.aiservice.prompt;
+
+import com.fitness.aiservice.model.Activity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prompt template compiled once into alternating literal segments and
+ * activity fields, so rendering is a series of appends into a caller-supplied
+ * builder. Placeholders are {{activityId}}, {{activityType}}, {{duration}},
+ * {{caloriesBurned}} and {{additionalMetrics}}.
+ *
+ * Additional metrics are rendered with keys in sorted order (nested maps
+ * too), so the same activity always yields the same prompt text.
+ */
+public final class PromptTemplate {
+
+    enum Field {
+        ACTIVITY_ID("activityId"),
+        ACTIVITY_TYPE("activityType"),
+        DURATION("duration"),
+        CALORIES_BURNED("caloriesBurned"),
+        ADDITIONAL_METRICS("additionalMetrics");
+
+        private final String placeholder;
+
+        Field(String placeholder) {
+            this.placeholder=placeholder;
+        }
+
+        static Field of(String placeholder) {
+            for(Field field:values()){
+                if(field.placeholder.equals(placeholder)){
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown prompt placeholder {{"+placeholder+"}}");
+        }
+    }
+
+    private final String version;
+    // literals[i] precedes fields[i]; the last literal follows the last field
+    private final String[] literals;
+    private final Field[] fields;
+
+    private PromptTemplate(String version, String[] literals, Field[] fields) {
+        this.version=version;
+        this.literals=literals;
+        this.fields=fields;
+    }
+
+    public static PromptTemplate compile(String version, String text) {
+        List<String> literals=new ArrayList<>();
+        List<Field> fields=new ArrayList<>();
+        int position=0;
+        int open;
+        while((open=text.indexOf("{{",position))>=0){
+            int close=text.indexOf("}}",open);
+            if(close<0){
+                throw new IllegalArgumentException("Unclosed placeholder in prompt template "+version);
+            }
+            literals.add(text.substring(position,open));
+            fields.add(Field.of(text.substring(open+2,close).trim()));
+            position=close+2;
+        }
+        literals.add(text.substring(position));
+        return new PromptTemplate(version,literals.toArray(String[]::new),fields.toArray(Field[]::new));
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public boolean isLiteral() {
+        return fields.length==0;
+    }
+
+    /**
+     * @return the literal text before the first placeholder, identical for every rendered prompt
+     */
+    public String prefix() {
+        return literals[0];
+    }
+
+    public void render(Activity activity, StringBuilder out) {
+        for(int i=0;i<fields.length;i++){
+            out.append(literals[i]);
+            switch (fields[i]) {
+                case ACTIVITY_ID -> out.append(activity.getActivityId());
+                case ACTIVITY_TYPE -> out.append(activity.getActivityType());
+                case DURATION -> out.append(activity.getDuration());
+                case CALORIES_BURNED -> out.append(activity.getCaloriesBurned());
+                case ADDITIONAL_METRICS -> appendCanonical(activity.getAdditionalMetrics(),out);
+            }
+        }
+        out.append(literals[fields.length]);
+    }
+
+    // Map.toString() layout ({a=1, b=2}) with keys in sorted order
+    static void appendCanonical(Object value, StringBuilder out) {
+        if(!(value instanceof Map<?,?> map)){
+            out.append(value);
+            return;
+        }
+        out.append('{');
+        boolean first=true;
+        for(Map.Entry<?,?> entry:sorted(map).entrySet()){
+            if(!first){
+                out.append(", ");
+            }
+            first=false;
+            out.append(entry.getKey()).append('=');
+            appendCanonical(entry.getValue(),out);
+        }
+        out.append('}');
+    }
+
+    private static Map<?,?> sorted(Map<?,?> map) {
+        if(map instanceof TreeMap<?,?> || map.size()<2){
+            return map;
+        }
+        Map<String,Object> sorted=new TreeMap<>();
+        map.forEach((key,value)->sorted.put(String.valueOf(key),value));
+        return sorted;
+    }
+}
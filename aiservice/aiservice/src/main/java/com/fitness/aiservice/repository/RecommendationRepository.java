@@ -2,7 +2,9 @@ package com.fitness.aiservice.repository;
 
 import com.fitness.aiservice.model.Recommendation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +13,8 @@ public interface RecommendationRepository extends MongoRepository<Recommendation
     List<Recommendation> findByUserId(String userId);
     Optional<Recommendation> findByActivityId(String activityId);
 
+    // Only activityId is loaded
+    @Query(value = "{ 'activityId': { $in: ?0 } }", fields = "{ 'activityId': 1 }")
+    List<Recommendation> findActivityIdsIn(Collection<String> activityIds);
+
 }
@@ -1,73 +1,209 @@
 package com.fitness.aiservice.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.dto.GeminiAnswer;
+import com.fitness.aiservice.gemini.GeminiResponseParser;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.model.RecommendationContent;
+import com.fitness.aiservice.prompt.ActivityPromptBuilder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ActivityAIService {
 
-    private final GeminiService geminiService;
+    private final GeminiRequestAccounting geminiRequestAccounting;
+    private final RecommendationCache recommendationCache;
+    private final GeminiResponseParser geminiResponseParser;
+    private final ActivityPromptBuilder activityPromptBuilder;
 
     public Recommendation generateRecommendation(Activity activity){
-        String prompt= createPromptForActivity(activity);
-        String aiResponse=geminiService.getRecommendations(prompt);
+        // Near-identical activities reuse an earlier answer and skip the LLM call entirely
+        String fingerprint=recommendationCache.fingerprint(activity);
+        Optional<RecommendationContent> cached=recommendationCache.get(fingerprint);
+        if(cached.isPresent()){
+            return toRecommendation(activity,cached.get());
+        }
+
+        return generateUncached(activity,fingerprint);
+    }
+
+    /**
+     * Generates recommendations for several activities with one Gemini call: the
+     * format instructions are sent once and the answer is a JSON array keyed by
+     * activityId. Activities missing from the answer, or all of them if the batch
+     * call fails, fall back to one call each.
+     *
+     * @return recommendations in the order of the given activities
+     */
+    public List<Recommendation> generateRecommendations(List<Activity> activities){
+        List<Recommendation> recommendations=new ArrayList<>(Collections.nCopies(activities.size(),null));
+        List<Integer> missing=new ArrayList<>();
+        List<String> fingerprints=new ArrayList<>(activities.size());
+        for(int i=0;i<activities.size();i++){
+            Activity activity=activities.get(i);
+            String fingerprint=recommendationCache.fingerprint(activity);
+            fingerprints.add(fingerprint);
+            Optional<RecommendationContent> cached=recommendationCache.get(fingerprint);
+            if(cached.isPresent()){
+                recommendations.set(i,toRecommendation(activity,cached.get()));
+            } else {
+                missing.add(i);
+            }
+        }
+        if(missing.size()==1){
+            int i=missing.get(0);
+            recommendations.set(i,generateUncached(activities.get(i),fingerprints.get(i)));
+            return recommendations;
+        }
+        if(missing.isEmpty()){
+            return recommendations;
+        }
+
+        List<Activity> batch=missing.stream().map(activities::get).toList();
+        Map<String,RecommendationContent> contents=Map.of();
+        long latencyNanos=0;
+        try{
+            long start=System.nanoTime();
+            GeminiResponseParser.Envelope aiResponse=geminiRequestAccounting.getRecommendations(batchType(batch),createPromptForActivities(batch));
+            latencyNanos=System.nanoTime()-start;
+            log.debug("Batch response from aI: {} ", aiResponse.text());
+            contents=processAiBatchResponse(aiResponse);
+        } catch (Exception e) {
+            log.warn("Batch recommendation for {} activities failed, falling back to single calls: {}",batch.size(),e.getMessage());
+        }
 
-        log.info("Response from aI: {} ", geminiService.getRecommendations(prompt));
+        for(int i:missing){
+            Activity activity=activities.get(i);
+            RecommendationContent content=contents.get(activity.getActivityId());
+            if(content!=null){
+                recommendationCache.put(fingerprints.get(i),content,latencyNanos/batch.size());
+                recommendations.set(i,toRecommendation(activity,content));
+            } else {
+                recommendations.set(i,generateUncached(activity,fingerprints.get(i)));
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * @return the cached recommendation for a near-identical activity, if any
+     */
+    public Optional<Recommendation> findCachedRecommendation(Activity activity){
+        return recommendationCache.get(recommendationCache.fingerprint(activity))
+                .map(content->toRecommendation(activity,content));
+    }
 
-        return processAiResponse(activity,aiResponse);
+    /**
+     * Streams the answer text for the activity as Gemini generates it.
+     * Concatenated, the chunks form the text completeStreamedRecommendation parses.
+     */
+    public Flux<String> streamRecommendationText(Activity activity){
+        return geminiRequestAccounting.streamRecommendations(activity.getActivityType(),createPromptForActivity(activity))
+                .map(chunk->Objects.toString(chunk.text(),""))
+                .filter(text->!text.isEmpty());
     }
 
-    private Recommendation processAiResponse(Activity activity, String aiResponse) {
+    /**
+     * Parses the full text of a streamed answer. It is not put into the
+     * semantic cache: only the Kafka path, whose activities come from
+     * ACTIVITYSERVICE's own events, fills it.
+     */
+    public Recommendation completeStreamedRecommendation(Activity activity, String answerText){
         try{
-            ObjectMapper mapper=new ObjectMapper();
-            JsonNode rootNode=  mapper.readTree(aiResponse);
-            JsonNode textNode=  rootNode.path("candidates").get(0).path("content").get("parts").get(0).path("text");
-            String jsonContent=textNode.asText().replaceAll("```json\\n","")
-                    .replaceAll("\\n```","").trim();
-
-//            log.info("Response from CleanedAI: {}",jsonContent);
-            JsonNode analysisJson=mapper.readTree(jsonContent);
-            JsonNode analysisNode=analysisJson.path("analysis");
-            StringBuilder fullAnalysis=new StringBuilder();
-            addAnalysisSection(fullAnalysis,analysisNode,"overall","Overall: ");
-            addAnalysisSection(fullAnalysis,analysisNode,"pace","Pace: ");
-            addAnalysisSection(fullAnalysis,analysisNode,"heartRate","Heart-Rate: ");
-            addAnalysisSection(fullAnalysis,analysisNode,"caloriesBurned","Calories-Burned: ");
-
-            List<String> improvements=extractImprovements(analysisJson.path("improvements"));
-            List<String> suggestions=extractSuggestions(analysisJson.path("suggestions"));
-            List<String> safety=extractSafetyGuidelines(analysisJson.path("safety"));
-
-            return Recommendation.builder()
-                    .userId(activity.getUserId())
-                    .activityId(activity.getActivityId())
-                    .type(activity.getActivityType().toString())
-                    .recommendation(fullAnalysis.toString().trim())
-                    .improvements(improvements)
-                    .suggestions(suggestions)
-                    .safety(safety)
-                    .createdAt(LocalDateTime.now())
-                    .build();
+            return toRecommendation(activity,toContent(geminiResponseParser.readAnswerText(answerText)));
+        } catch (Exception e) {
+            log.warn("Could not parse streamed recommendation for activity {}: {}",activity.getActivityId(),e.getMessage());
+            return createDefaultRecommendation(activity);
+        }
+    }
+
+    private Recommendation generateUncached(Activity activity, String fingerprint) {
+        String prompt= createPromptForActivity(activity);
+        long start=System.nanoTime();
+        GeminiResponseParser.Envelope aiResponse=geminiRequestAccounting.getRecommendations(activity.getActivityType(),prompt);
+        long latencyNanos=System.nanoTime()-start;
+
+        log.debug("Response from aI: {} ", aiResponse.text());
 
+        try{
+            RecommendationContent content=processAiResponse(aiResponse);
+            recommendationCache.put(fingerprint,content,latencyNanos);
+            return toRecommendation(activity,content);
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not parse recommendation for activity {}, using the default",activity.getActivityId(),e);
             return createDefaultRecommendation(activity);
         }
     }
 
+    private static String batchType(List<Activity> batch) {
+        long types=batch.stream().map(Activity::getActivityType).distinct().count();
+        return types==1 ? String.valueOf(batch.get(0).getActivityType()) : "MIXED";
+    }
+
+    private RecommendationContent processAiResponse(GeminiResponseParser.Envelope aiResponse) throws Exception {
+        return toContent(geminiResponseParser.readAnswer(aiResponse));
+    }
+
+    private Map<String,RecommendationContent> processAiBatchResponse(GeminiResponseParser.Envelope aiResponse) throws Exception {
+        Map<String,RecommendationContent> contents=new HashMap<>();
+        for(GeminiAnswer answer:geminiResponseParser.readBatchAnswer(aiResponse)){
+            if(answer!=null && answer.getActivityId()!=null){
+                contents.put(answer.getActivityId(),toContent(answer));
+            }
+        }
+        return contents;
+    }
+
+    private RecommendationContent toContent(GeminiAnswer answer) {
+        GeminiAnswer.Analysis analysis=answer.getAnalysis();
+        StringBuilder fullAnalysis=new StringBuilder();
+        if(analysis!=null){
+            addAnalysisSection(fullAnalysis,analysis.getOverall(),"Overall: ");
+            addAnalysisSection(fullAnalysis,analysis.getPace(),"Pace: ");
+            addAnalysisSection(fullAnalysis,analysis.getHeartRate(),"Heart-Rate: ");
+            addAnalysisSection(fullAnalysis,analysis.getCaloriesBurned(),"Calories-Burned: ");
+        }
+
+        List<String> improvements=extractImprovements(answer.getImprovements());
+        List<String> suggestions=extractSuggestions(answer.getSuggestions());
+        List<String> safety=extractSafetyGuidelines(answer.getSafety());
+
+        return RecommendationContent.builder()
+                .recommendation(fullAnalysis.toString().trim())
+                .improvements(improvements)
+                .suggestions(suggestions)
+                .safety(safety)
+                .build();
+    }
+
+    private Recommendation toRecommendation(Activity activity, RecommendationContent content) {
+        return Recommendation.builder()
+                .userId(activity.getUserId())
+                .activityId(activity.getActivityId())
+                .type(activity.getActivityType().toString())
+                .recommendation(content.getRecommendation())
+                .improvements(content.getImprovements())
+                .suggestions(content.getSuggestions())
+                .safety(content.getSafety())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
     private Recommendation createDefaultRecommendation(Activity activity) {
         return Recommendation.builder()
                 .userId(activity.getUserId())
@@ -84,10 +220,10 @@ public class ActivityAIService {
                 .build();
     }
 
-    private List<String> extractSafetyGuidelines(JsonNode safetyNode) {
+    private List<String> extractSafetyGuidelines(List<String> safetyItems) {
         List<String> safety=new ArrayList<>();
-        if(safetyNode.isArray()){
-            safetyNode.forEach(item-> safety.add(item.asText()));
+        if(safetyItems!=null){
+            safetyItems.forEach(item-> safety.add(Objects.toString(item,"")));
         }
 
         return safety.isEmpty()?
@@ -95,13 +231,13 @@ public class ActivityAIService {
                 safety;
     }
 
-    private List<String> extractSuggestions(JsonNode suggestionsNode) {
+    private List<String> extractSuggestions(List<GeminiAnswer.Suggestion> suggestionItems) {
         List<String> suggestions=new ArrayList<>();
-        if(suggestionsNode.isArray()){
-            suggestionsNode.forEach(suggestion->{
-                String workout=suggestion.path("workout").asText();
-                String description=suggestion.path("description").asText();
-                suggestions.add(String.format("%s: %s",workout,description));
+        if(suggestionItems!=null){
+            suggestionItems.forEach(suggestion->{
+                String workout=Objects.toString(suggestion.getWorkout(),"");
+                String description=Objects.toString(suggestion.getDescription(),"");
+                suggestions.add(workout+": "+description);
             });
         }
 
@@ -110,13 +246,13 @@ public class ActivityAIService {
                 suggestions;
     }
 
-    private List<String> extractImprovements(JsonNode improvementsNode) {
+    private List<String> extractImprovements(List<GeminiAnswer.Improvement> improvementItems) {
         List<String> improvements=new ArrayList<>();
-        if(improvementsNode.isArray()){
-            improvementsNode.forEach(improvement->{
-                String area=improvement.path("area").asText();
-                String details=improvement.path("recommendation").asText();
-                improvements.add(String.format("%s: %s",area,details));
+        if(improvementItems!=null){
+            improvementItems.forEach(improvement->{
+                String area=Objects.toString(improvement.getArea(),"");
+                String details=Objects.toString(improvement.getRecommendation(),"");
+                improvements.add(area+": "+details);
             });
         }
 
@@ -126,57 +262,23 @@ public class ActivityAIService {
 
     }
 
-    private void addAnalysisSection(StringBuilder fullAnalysis, JsonNode analysisNode, String key, String prefix) {
+    private void addAnalysisSection(StringBuilder fullAnalysis, String section, String prefix) {
 
-        if(!analysisNode.path(key).isMissingNode()){
-            fullAnalysis.append(prefix).append(analysisNode.path(key).asText()).append("\n\n");
+        if(section!=null){
+            fullAnalysis.append(prefix).append(section).append("\n\n");
         }
 
     }
 
     public String createPromptForActivity(Activity activity){
-        return String.format("""
-                Analyse the fitness activity and provide detailed recommendations in following EXACT json format:
-                {
-                    "analysis":{
-                        "overall":  "Overall analysis here",
-                        "pace": "Pace analysis here",
-                        "heartRate": "Heart rate analysis here",
-                        "caloriesBurned": "Calories analysis here"
-                },
-                "improvements": [
-                {
-                    "area": "Area name",
-                    "recommendation": "Detailed recommendation"
-                }
-                ],
-                "suggestions":[
-                {
-                    "workout": "Workout name",
-                    "description": "Detailed workout description"
-                }
-                ],
-                "safety":[
-                    "Safety point 1",
-                    "Safety point 2"
-                    ]
-                }
-                
-                Analyze this activity:
-                Activity Type: %s
-                Duration: %d minutes
-                Calories Burned: %d
-                Additional Metrics: %s
-                
-                Detailed analysis focusing on performance, improvements, next workout suggestions, and safety guidelines.
-                Ensure the response follows the EXACT JSON format shown above.
-                
-                """,
-                activity.getActivityType(),
-                activity.getDuration(),
-                activity.getCaloriesBurned(),
-                activity.getAdditionalMetrics()
-                );
+        return activityPromptBuilder.build(activity);
+    }
+
+    /**
+     * Prompt for several activities at once; the answer is one object per activity, keyed by activityId.
+     */
+    public String createPromptForActivities(List<Activity> activities){
+        return activityPromptBuilder.buildBatch(activities);
     }
 
 }
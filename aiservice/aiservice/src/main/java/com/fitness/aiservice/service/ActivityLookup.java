@@ -0,0 +1,45 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Reads an activity from ACTIVITYSERVICE on behalf of its owner, so requests
+ * only ever name an activity and never supply its contents.
+ */
+@Component
+@Slf4j
+public class ActivityLookup {
+
+    private static final Duration TIMEOUT=Duration.ofSeconds(10);
+
+    private final WebClient activityServiceWebClient;
+
+    public ActivityLookup(@Qualifier("activityServiceWebClient") WebClient activityServiceWebClient) {
+        this.activityServiceWebClient=activityServiceWebClient;
+    }
+
+    /**
+     * @return the activity, if it exists and belongs to the user
+     */
+    public Optional<Activity> findUserActivity(String userId, String activityId){
+        try{
+            Activity activity=activityServiceWebClient.get()
+                    .uri("/api/v1/activity/activities/{activityId}",activityId)
+                    .header("X-User-ID",userId)
+                    .retrieve()
+                    .bodyToMono(Activity.class)
+                    .block(TIMEOUT);
+            return Optional.ofNullable(activity).filter(found->userId.equals(found.getUserId()));
+        } catch (WebClientResponseException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+}
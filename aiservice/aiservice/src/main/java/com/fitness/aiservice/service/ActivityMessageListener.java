@@ -1,26 +1,262 @@
 package com.fitness.aiservice.service;
 
+import com.fitness.aiservice.config.CacheConfig;
 import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Consumes "activity-events" in batches. Each batch is split into prompt
+ * batches of ai.recommendation.prompt-batch-size activities (1 sends one prompt
+ * per activity), which fan out to the bounded recommendationExecutor so one slow
+ * Gemini call doesn't hold up the others. The listener then persists all recommendations with a single saveAll. The listener only
+ * returns once the batch is stored, so offsets (ack-mode BATCH) are committed
+ * after the batch is durable. Activities that already have a recommendation
+ * (redeliveries, or generated through the streaming endpoint) are skipped.
+ * Storing a recommendation evicts its user's cached recommendation list.
+ *
+ * A batch gets ai.recommendation.batch-timeout, well below the consumer's
+ * max.poll.interval.ms, so a consumer waiting on a saturated Gemini is never
+ * dropped from its group (which would redeliver the whole batch elsewhere while
+ * its calls are still running). At the deadline the prompt batches that haven't
+ * started are skipped, the running ones are stored whenever they finish, and
+ * the batch is redelivered from its first unfinished record; activities stored
+ * meanwhile are skipped then.
+ *
+ * A record the ErrorHandlingDeserializer couldn't read arrives as null: the
+ * activities before it are processed, then BatchListenerFailedException hands it
+ * to KafkaConfig's error handler.
+ *
+ * The X-Correlation-ID record header of the originating gateway request is put
+ * into the MDC while its activity's recommendation is generated; the time
+ * records spent in Kafka is published as activity.events.consume.lag.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ActivityMessageListener {
 
+    static final String CORRELATION_ID_HEADER="X-Correlation-ID";
+    static final String CORRELATION_ID_MDC_KEY="correlationId";
+    private static final LogAccessor LOGGER=new LogAccessor(ActivityMessageListener.class);
+
     private final ActivityAIService activityAIService;
     private final RecommendationRepository recommendationRepository;
+    private final AsyncTaskExecutor recommendationExecutor;
+    private final CacheManager cacheManager;
+    private final Timer consumeLag;
+
+    @Value("${ai.recommendation.prompt-batch-size:5}")
+    private int promptBatchSize;
+    @Value("${ai.recommendation.batch-timeout:4m}")
+    private Duration batchTimeout=Duration.ofMinutes(4);
+
+    public ActivityMessageListener(ActivityAIService activityAIService,
+                                   RecommendationRepository recommendationRepository,
+                                   AsyncTaskExecutor recommendationExecutor,
+                                   CacheManager cacheManager,
+                                   MeterRegistry meterRegistry) {
+        this.activityAIService=activityAIService;
+        this.recommendationRepository=recommendationRepository;
+        this.recommendationExecutor=recommendationExecutor;
+        this.cacheManager=cacheManager;
+        this.consumeLag=Timer.builder("activity.events.consume.lag")
+                .description("Time from the record's producer timestamp until the listener received it")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(id = "activity-processor", topics = "${kafka.topic.name}", groupId = "activity-processor-group",
+            batch = "true", concurrency = "${kafka.listener.concurrency:1}")
+    public void onActivityEvents(List<ConsumerRecord<String,Activity>> records){
+        long now=System.currentTimeMillis();
+        List<Activity> activities=new ArrayList<>(records.size());
+        for(ConsumerRecord<String,Activity> record:records){
+            consumeLag.record(Math.max(now-record.timestamp(),0),TimeUnit.MILLISECONDS);
+            Activity activity=record.value();
+            if(activity==null){
+                // The ErrorHandlingDeserializer couldn't read it: store what came before,
+                // then let the error handler recover this record and redeliver the rest
+                processActivities(activities);
+                throw new BatchListenerFailedException("Activity record could not be deserialized",
+                        SerializationUtils.getExceptionFromHeader(record,SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER,LOGGER),
+                        activities.size());
+            }
+            Header correlationId=record.headers().lastHeader(CORRELATION_ID_HEADER);
+            if(correlationId!=null){
+                activity.setCorrelationId(new String(correlationId.value(),StandardCharsets.UTF_8));
+            }
+            activities.add(activity);
+        }
+        processActivities(activities);
+    }
+
+    public void processActivities(List<Activity> activities){
+        if(activities.isEmpty()){
+            return;
+        }
+        log.info("Received batch of {} activities",activities.size());
+        List<Integer> pending=withoutRecommendation(activities);
+
+        int chunkSize=Math.max(promptBatchSize,1);
+        long deadline=System.nanoTime()+batchTimeout.toNanos();
+        // Set once the batch gave up, so prompt batches still queued don't call Gemini
+        AtomicBoolean abandoned=new AtomicBoolean();
+        List<CompletableFuture<List<Recommendation>>> futures=new ArrayList<>();
+        for(int start=0;start<pending.size();start+=chunkSize){
+            List<Activity> chunk=pending.subList(start,Math.min(start+chunkSize,pending.size())).stream()
+                    .map(activities::get)
+                    .toList();
+            futures.add(CompletableFuture.supplyAsync(()->abandoned.get() ? List.<Recommendation>of() : generate(chunk),recommendationExecutor));
+        }
+
+        List<Recommendation> recommendations=new ArrayList<>(pending.size());
+        for(int i=0;i<futures.size();i++){
+            int firstIndex=pending.get(i*chunkSize);
+            try{
+                recommendations.addAll(futures.get(i).get(Math.max(deadline-System.nanoTime(),0),TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                abandoned.set(true);
+                log.warn("Batch timeout of {} reached with {} of {} prompt batches unfinished, redelivering from activity {}",
+                        batchTimeout,futures.size()-i,futures.size(),activities.get(firstIndex).getActivityId());
+                futures.subList(i,futures.size()).forEach(future->future.thenAccept(this::saveLate));
+                saveAll(recommendations);
+                throw new BatchListenerFailedException("Batch timeout reached",e,firstIndex);
+            } catch (ExecutionException e) {
+                // Keep what completed before the failure; the error handler commits those
+                // offsets and redelivers the batch from the first record of the failed chunk
+                abandoned.set(true);
+                log.error("Recommendation failed for activity {} (correlation {})",activities.get(firstIndex).getActivityId(),
+                        activities.get(firstIndex).getCorrelationId(),e.getCause());
+                futures.subList(i+1,futures.size()).forEach(future->future.cancel(false));
+                saveAll(recommendations);
+                throw new BatchListenerFailedException("Recommendation failed",e.getCause(),firstIndex);
+            } catch (InterruptedException e) {
+                abandoned.set(true);
+                Thread.currentThread().interrupt();
+                saveAll(recommendations);
+                throw new BatchListenerFailedException("Interrupted while waiting for recommendations",e,firstIndex);
+            }
+        }
+        saveAll(recommendations);
+    }
+
+    /**
+     * @return indexes of the activities that have no recommendation yet
+     */
+    private List<Integer> withoutRecommendation(List<Activity> activities) {
+        Set<String> activityIds=activities.stream().map(Activity::getActivityId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<String> existing=recommendationRepository.findActivityIdsIn(activityIds).stream()
+                .map(Recommendation::getActivityId)
+                .collect(Collectors.toSet());
+        List<Integer> pending=new ArrayList<>(activities.size());
+        for(int i=0;i<activities.size();i++){
+            if(!existing.contains(activities.get(i).getActivityId())){
+                pending.add(i);
+            }
+        }
+        if(pending.size()<activities.size()){
+            log.info("Skipping {} activities that already have a recommendation",activities.size()-pending.size());
+        }
+        return pending;
+    }
+
+    private List<Recommendation> generate(List<Activity> chunk) {
+        // One prompt batch can serve several gateway requests
+        String correlationIds=chunk.stream()
+                .map(Activity::getCorrelationId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.joining(","));
+        if(!correlationIds.isEmpty()){
+            MDC.put(CORRELATION_ID_MDC_KEY,correlationIds);
+        }
+        try{
+            if(chunk.size()==1){
+                return List.of(activityAIService.generateRecommendation(chunk.get(0)));
+            }
+            return activityAIService.generateRecommendations(chunk);
+        } finally {
+            MDC.remove(CORRELATION_ID_MDC_KEY);
+        }
+    }
+
+    private void saveAll(List<Recommendation> recommendations) {
+        if(recommendations.isEmpty()){
+            return;
+        }
+        try{
+            recommendationRepository.saveAll(recommendations);
+        } catch (DuplicateKeyException e) {
+            insertMissing(recommendations);
+        }
+        evictUserRecommendations(recommendations);
+    }
+
+    // A prompt batch that finished after its listener batch timed out
+    private void saveLate(List<Recommendation> recommendations) {
+        try{
+            saveAll(recommendations);
+        } catch (RuntimeException e) {
+            log.warn("Could not store {} late recommendations, they are generated again on redelivery: {}",recommendations.size(),e.getMessage());
+        }
+    }
+
+    /**
+     * The streaming endpoint stored some of these meanwhile: keeps its answers and stores the rest.
+     */
+    private void insertMissing(List<Recommendation> recommendations) {
+        Set<String> stored=recommendationRepository.findActivityIdsIn(
+                recommendations.stream().map(Recommendation::getActivityId).toList()).stream()
+                .map(Recommendation::getActivityId)
+                .collect(Collectors.toSet());
+        for(Recommendation recommendation:recommendations){
+            if(!stored.contains(recommendation.getActivityId())){
+                try{
+                    recommendationRepository.insert(recommendation);
+                } catch (DuplicateKeyException duplicate) {
+                    log.info("Recommendation for activity {} was already stored",recommendation.getActivityId());
+                }
+            }
+        }
+    }
 
-    @KafkaListener(topics = "${kafka.topic.name}", groupId = "activity-processor-group")
-    public void processActivity(Activity activity){
-        log.info(" KAFKA TESTING__________User id is: "+activity.getUserId());
-        Recommendation recommendation= activityAIService.generateRecommendation(activity);
-        recommendationRepository.save(recommendation);
+    // Cached user lists no longer include everything, activity-keyed entries stay valid
+    private void evictUserRecommendations(List<Recommendation> recommendations) {
+        Cache userRecommendations=cacheManager.getCache(CacheConfig.USER_RECOMMENDATIONS);
+        if(userRecommendations!=null){
+            recommendations.stream()
+                    .map(Recommendation::getUserId)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .forEach(userRecommendations::evict);
+        }
     }
 }
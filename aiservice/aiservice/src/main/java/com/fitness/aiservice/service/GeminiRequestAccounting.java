@@ -0,0 +1,116 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.gemini.GeminiResponseParser;
+import com.fitness.aiservice.model.ActivityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Accounting layer around GeminiService. Every upstream call is counted and
+ * timed per activity type and outcome, and the token usage reported in the
+ * response's usageMetadata is added to per-type token counters:
+ * <ul>
+ *     <li>gemini.requests (timer, tags activityType/outcome)</li>
+ *     <li>gemini.tokens (counter, tags activityType/kind=prompt|candidates|total)</li>
+ * </ul>
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GeminiRequestAccounting {
+
+    private final GeminiService geminiService;
+    private final MeterRegistry meterRegistry;
+    private final GeminiResponseParser geminiResponseParser;
+
+    public GeminiResponseParser.Envelope getRecommendations(ActivityType activityType, String prompt){
+        return getRecommendations(String.valueOf(activityType),prompt);
+    }
+
+    /**
+     * @param type activityType tag of the metrics, e.g. MIXED for a batch prompt of several types
+     * @return the parsed response, whose text the caller binds; an unreadable response has neither text nor usage
+     */
+    public GeminiResponseParser.Envelope getRecommendations(String type, String prompt){
+        Timer.Sample sample=Timer.start(meterRegistry);
+        String response;
+        try{
+            response=geminiService.getRecommendations(prompt);
+        } catch (RuntimeException e) {
+            sample.stop(requestTimer(type,"failure"));
+            throw e;
+        }
+        sample.stop(requestTimer(type,"success"));
+        GeminiResponseParser.Envelope envelope;
+        try{
+            envelope=geminiResponseParser.parseEnvelope(response);
+        } catch (Exception e) {
+            log.warn("Unreadable Gemini response: {}",e.getMessage());
+            envelope=GeminiResponseParser.Envelope.empty();
+        }
+        recordTokenUsage(type,envelope);
+        return envelope;
+    }
+
+    /**
+     * Streaming variant; the call is timed until the stream ends, and the token
+     * usage is taken from the last chunk, which carries the final counts.
+     * Unreadable chunks are skipped.
+     */
+    public Flux<GeminiResponseParser.Envelope> streamRecommendations(ActivityType activityType, String prompt){
+        String type=String.valueOf(activityType);
+        return Flux.defer(()->{
+            Timer.Sample sample=Timer.start(meterRegistry);
+            AtomicReference<GeminiResponseParser.Envelope> lastChunk=new AtomicReference<>();
+            return geminiService.streamRecommendations(prompt)
+                    .<GeminiResponseParser.Envelope>handle((chunk,sink)->{
+                        try{
+                            sink.next(geminiResponseParser.parseEnvelope(chunk));
+                        } catch (Exception e) {
+                            log.debug("Skipping unreadable Gemini stream chunk: {}",e.getMessage());
+                        }
+                    })
+                    .doOnNext(lastChunk::set)
+                    .doOnComplete(()->{
+                        sample.stop(requestTimer(type,"success"));
+                        recordTokenUsage(type,lastChunk.get());
+                    })
+                    .doOnError(e->sample.stop(requestTimer(type,"failure")));
+        });
+    }
+
+    private Timer requestTimer(String activityType, String outcome) {
+        return Timer.builder("gemini.requests")
+                .description("Gemini generateContent calls")
+                .tag("activityType",activityType)
+                .tag("outcome",outcome)
+                .register(meterRegistry);
+    }
+
+    private void recordTokenUsage(String activityType, GeminiResponseParser.Envelope usage) {
+        if(usage==null){
+            return;
+        }
+        countTokens(activityType,"prompt",usage.promptTokens());
+        countTokens(activityType,"candidates",usage.candidatesTokens());
+        countTokens(activityType,"total",usage.totalTokens());
+    }
+
+    private void countTokens(String activityType, String kind, long tokens) {
+        if(tokens>0){
+            Counter.builder("gemini.tokens")
+                    .description("Tokens reported by Gemini usageMetadata")
+                    .tag("activityType",activityType)
+                    .tag("kind",kind)
+                    .register(meterRegistry)
+                    .increment(tokens);
+        }
+    }
+}
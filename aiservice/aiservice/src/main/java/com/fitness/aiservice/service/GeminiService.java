@@ -1,45 +1,177 @@
 package com.fitness.aiservice.service;
 
-import lombok.RequiredArgsConstructor;
+import com.fitness.aiservice.gemini.AdaptiveConcurrencyLimiter;
+import com.fitness.aiservice.gemini.GeminiClientProperties;
+import com.fitness.aiservice.gemini.TokenBucketRateLimiter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Blocking Gemini generateContent client. Each call
+ * <ul>
+ *     <li>waits for a slot of the adaptive concurrency limit,</li>
+ *     <li>takes a permit from the rate limiter before every attempt,</li>
+ *     <li>is bounded by the call timeout and retried with jittered exponential
+ *     backoff on 429, 5xx, connection errors and timeouts.</li>
+ * </ul>
+ * Rejections and timeouts shrink the concurrency limit, see AdaptiveConcurrencyLimiter.
+ *
+ * streamRecommendations uses streamGenerateContent (server-sent events) under the
+ * same limits; it is not retried, since chunks may already have been delivered.
+ */
 @Service
+@Slf4j
 public class GeminiService {
 
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_CHUNK=new ParameterizedTypeReference<>() {};
+
     private final WebClient webClient;
+    private final GeminiClientProperties properties;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     @Value("${gemini.api.url}")
     private String geminiApiUrl;
     @Value("${gemini.api.key}")
     private String geminiApiKey;
+    // Defaults to the :streamGenerateContent counterpart of gemini.api.url
+    @Value("${gemini.api.stream-url:}")
+    private String geminiStreamUrl;
 
-    public GeminiService(WebClient.Builder webClientBuilder){
-        this.webClient= webClientBuilder.build();
+    public GeminiService(WebClient geminiWebClient,
+                         GeminiClientProperties properties,
+                         TokenBucketRateLimiter rateLimiter,
+                         AdaptiveConcurrencyLimiter concurrencyLimiter){
+        this.webClient=geminiWebClient;
+        this.properties=properties;
+        this.rateLimiter=rateLimiter;
+        this.concurrencyLimiter=concurrencyLimiter;
     }
 
     public String getRecommendations(String details){
-        Map<String,Object> requestBody=Map.of(
+        Map<String,Object> requestBody=requestBody(details);
+
+        acquireSlot();
+        long start=System.nanoTime();
+        boolean dropped=false;
+        try{
+            return Mono.defer(()->rateLimiter.acquire().then(send(requestBody)))
+                    .retryWhen(retrySpec())
+                    .block();
+        } catch (RuntimeException e) {
+            dropped=isRetryable(Exceptions.unwrap(e)) || Exceptions.isRetryExhausted(e);
+            throw e;
+        } finally {
+            concurrencyLimiter.release(Duration.ofNanos(System.nanoTime()-start),dropped);
+        }
+    }
+
+    /**
+     * @return the raw JSON chunks (GenerateContentResponse) as Gemini streams them
+     */
+    public Flux<String> streamRecommendations(String details){
+        Map<String,Object> requestBody=requestBody(details);
+        return Flux.defer(()->{
+            acquireSlot();
+            long start=System.nanoTime();
+            AtomicBoolean dropped=new AtomicBoolean();
+            AtomicBoolean released=new AtomicBoolean();
+            // Released before the terminal signal reaches the subscriber, or on cancel
+            Runnable release=()->{
+                if(released.compareAndSet(false,true)){
+                    concurrencyLimiter.release(Duration.ofNanos(System.nanoTime()-start),dropped.get());
+                }
+            };
+            return rateLimiter.acquire()
+                    .thenMany(webClient.post()
+                            .uri(streamUrl())
+                            .header("Content-Type","application/json")
+                            .header("x-goog-api-key",geminiApiKey)
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .bodyValue(requestBody)
+                            .retrieve()
+                            .bodyToFlux(SSE_CHUNK))
+                    // Bounds the wait for the first and for every following chunk
+                    .timeout(properties.getCallTimeout())
+                    .mapNotNull(ServerSentEvent::data)
+                    .doOnError(e->dropped.set(isRetryable(e)))
+                    .doOnTerminate(release)
+                    .doOnCancel(release);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private String streamUrl() {
+        if(geminiStreamUrl!=null && !geminiStreamUrl.isBlank()){
+            return geminiStreamUrl;
+        }
+        String url=geminiApiUrl.replace(":generateContent",":streamGenerateContent");
+        return url+(url.contains("?") ? "&" : "?")+"alt=sse";
+    }
+
+    private static Map<String,Object> requestBody(String details) {
+        return Map.of(
                 "contents",new Object[]{
                         Map.of("parts",new Object[]{
                                 Map.of("text",details)
                         })
                 }
         );
+    }
+
+    private Mono<String> send(Map<String,Object> requestBody) {
+        return webClient.post()
+                .uri(geminiApiUrl)
+                .header("Content-Type","application/json")
+                .header("x-goog-api-key",geminiApiKey)
+                .bodyValue(requestBody)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(properties.getCallTimeout());
+    }
 
-        String response=webClient.post()
-                        .uri(geminiApiUrl)
-                        .header("Content-Type","application/json")
-                        .header("x-goog-api-key",geminiApiKey)
-                        .bodyValue(requestBody)
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .block();
+    private Retry retrySpec() {
+        GeminiClientProperties.Retry retry=properties.getRetry();
+        return Retry.backoff(retry.getMaxRetries(),retry.getInitialBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .filter(GeminiService::isRetryable)
+                .doBeforeRetry(signal->log.warn("Gemini call failed ({}), retry {}",
+                        signal.failure().getMessage(),signal.totalRetries()+1));
+    }
+
+    private void acquireSlot() {
+        try{
+            concurrencyLimiter.acquire(properties.getConcurrency().getAcquireTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Gemini capacity",e);
+        } catch (TimeoutException e) {
+            throw new RuntimeException(e.getMessage(),e);
+        }
+    }
 
-        return response;
+    static boolean isRetryable(Throwable e) {
+        if(e instanceof WebClientResponseException response){
+            return response.getStatusCode().value()==429 || response.getStatusCode().is5xxServerError();
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
     }
 
 }
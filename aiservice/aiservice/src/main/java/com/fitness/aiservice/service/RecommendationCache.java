@@ -0,0 +1,213 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.CachedRecommendation;
+import com.fitness.aiservice.model.RecommendationContent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Semantic cache of Gemini recommendations. Near-identical activities (same
+ * type, similar duration, calories and additional metrics) share one
+ * fingerprint, so only the first of them pays for a Gemini round trip.
+ *
+ * The fingerprint buckets the prompt inputs: duration and calories are rounded
+ * to fixed-size buckets, numeric metrics to a few significant digits, text
+ * metrics are lower-cased, and metric keys are taken in sorted order.
+ *
+ * Lookups go to a size-bounded in-memory tier first, then to the optional Mongo
+ * tier (recommendation_cache collection, expired by a TTL index). Metrics:
+ * ai.recommendation.cache.requests (tags result=hit|miss, tier) and
+ * ai.recommendation.cache.saved, the Gemini latency avoided by hits, estimated
+ * from the average latency of the misses.
+ */
+@Component
+@Slf4j
+public class RecommendationCache {
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean mongoEnabled;
+    private final Duration ttl;
+    private final int durationBucket;
+    private final int caloriesBucket;
+    private final MathContext metricPrecision;
+
+    private final Cache<String,RecommendationContent> memory;
+    private final Counter memoryHits;
+    private final Counter mongoHits;
+    private final Counter misses;
+    private final AtomicLong missCount=new AtomicLong();
+    private final AtomicLong missNanos=new AtomicLong();
+    private final AtomicLong savedNanos=new AtomicLong();
+
+    public RecommendationCache(MongoTemplate mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${ai.recommendation-cache.enabled:true}") boolean enabled,
+                               @Value("${ai.recommendation-cache.maximum-size:10000}") long maximumSize,
+                               @Value("${ai.recommendation-cache.ttl:7d}") Duration ttl,
+                               @Value("${ai.recommendation-cache.mongo.enabled:false}") boolean mongoEnabled,
+                               @Value("${ai.recommendation-cache.duration-bucket-minutes:5}") int durationBucket,
+                               @Value("${ai.recommendation-cache.calories-bucket:25}") int caloriesBucket,
+                               @Value("${ai.recommendation-cache.metric-significant-digits:2}") int metricDigits) {
+        this.mongoTemplate=mongoTemplate;
+        this.enabled=enabled;
+        this.mongoEnabled=enabled && mongoEnabled && mongoTemplate!=null;
+        this.ttl=ttl;
+        this.durationBucket=Math.max(durationBucket,1);
+        this.caloriesBucket=Math.max(caloriesBucket,1);
+        this.metricPrecision=new MathContext(Math.max(metricDigits,1));
+
+        this.memory=Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry,memory,"recommendationContent");
+        this.memoryHits=requests(meterRegistry,"hit","memory");
+        this.mongoHits=requests(meterRegistry,"hit","mongo");
+        this.misses=requests(meterRegistry,"miss","none");
+        FunctionCounter.builder("ai.recommendation.cache.saved",savedNanos,saved->saved.get()/1e9)
+                .description("Estimated Gemini latency avoided by cache hits")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void createTtlIndex() {
+        if(mongoEnabled){
+            mongoTemplate.indexOps(CachedRecommendation.class)
+                    .createIndex(new Index().on("createdAt",Sort.Direction.ASC).expire(ttl));
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result, String tier) {
+        return Counter.builder("ai.recommendation.cache.requests")
+                .description("Recommendation cache lookups")
+                .tag("result",result)
+                .tag("tier",tier)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the normalized, bucketed fingerprint of the activity's prompt inputs
+     */
+    public String fingerprint(Activity activity){
+        StringBuilder key=new StringBuilder(128)
+                .append(activity.getActivityType())
+                .append("|d=").append(bucket(activity.getDuration(),durationBucket))
+                .append("|c=").append(bucket(activity.getCaloriesBurned(),caloriesBucket));
+        if(activity.getAdditionalMetrics()!=null){
+            new TreeMap<>(activity.getAdditionalMetrics())
+                    .forEach((name,value)->key.append('|').append(name).append('=').append(normalize(value)));
+        }
+        return sha256(key.toString());
+    }
+
+    public Optional<RecommendationContent> get(String fingerprint){
+        if(!enabled){
+            return Optional.empty();
+        }
+        RecommendationContent content=memory.getIfPresent(fingerprint);
+        if(content!=null){
+            memoryHits.increment();
+            recordSaved();
+            return Optional.of(content);
+        }
+        if(mongoEnabled){
+            CachedRecommendation cached=mongoTemplate.findById(fingerprint,CachedRecommendation.class);
+            if(cached!=null && cached.getContent()!=null){
+                memory.put(fingerprint,cached.getContent());
+                mongoHits.increment();
+                recordSaved();
+                return Optional.of(cached.getContent());
+            }
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the parsed answer of a Gemini call.
+     *
+     * @param latencyNanos how long the Gemini call took, used to estimate the time saved by later hits
+     */
+    public void put(String fingerprint, RecommendationContent content, long latencyNanos){
+        missCount.incrementAndGet();
+        missNanos.addAndGet(latencyNanos);
+        if(!enabled){
+            return;
+        }
+        memory.put(fingerprint,content);
+        if(mongoEnabled){
+            try{
+                mongoTemplate.save(new CachedRecommendation(fingerprint,content,LocalDateTime.now()));
+            } catch (Exception e) {
+                log.warn("Could not store recommendation in Mongo cache: {}",e.getMessage());
+            }
+        }
+    }
+
+    private void recordSaved() {
+        long calls=missCount.get();
+        if(calls>0){
+            savedNanos.addAndGet(missNanos.get()/calls);
+        }
+    }
+
+    private static long bucket(Integer value, int size) {
+        if(value==null){
+            return -1;
+        }
+        return Math.round(value/(double) size)*size;
+    }
+
+    private String normalize(Object value) {
+        if(value instanceof Number number){
+            try{
+                return new BigDecimal(number.toString()).round(metricPrecision).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return number.toString();
+            }
+        }
+        if(value instanceof Map<?,?> map){
+            StringBuilder nested=new StringBuilder("{");
+            new TreeMap<>(map).forEach((name,nestedValue)->nested.append(name).append('=').append(normalize(nestedValue)).append(';'));
+            return nested.append('}').toString();
+        }
+        return String.valueOf(value).trim().toLowerCase();
+    }
+
+    private static String sha256(String key) {
+        try{
+            byte[] digest=MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.fitness.aiservice.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in a user's recommendation history, ordered by createdAt
+ * desc, then _id desc. Encoded as an opaque URL-safe token.
+ */
+public record RecommendationCursor(LocalDateTime createdAt, String id) {
+
+    private static final char SEPARATOR='|';
+
+    public String encode() {
+        String position=createdAt.toString()+SEPARATOR+id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static RecommendationCursor decode(String token) {
+        try{
+            String position=new String(Base64.getUrlDecoder().decode(token),StandardCharsets.UTF_8);
+            int separator=position.indexOf(SEPARATOR);
+            String id=position.substring(separator+1);
+            if(id.isEmpty()){
+                throw new IllegalArgumentException("Invalid cursor: "+token);
+            }
+            return new RecommendationCursor(LocalDateTime.parse(position.substring(0,separator)),id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: "+token,e);
+        }
+    }
+
+    /**
+     * @return criteria matching the recommendations that come after this position
+     */
+    public Criteria after() {
+        return new Criteria().orOperator(
+                Criteria.where("createdAt").lt(createdAt),
+                new Criteria().andOperator(
+                        Criteria.where("createdAt").is(createdAt),
+                        Criteria.where("id").lt(id)));
+    }
+}
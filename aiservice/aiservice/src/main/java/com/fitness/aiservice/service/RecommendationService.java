@@ -1,12 +1,22 @@
 package com.fitness.aiservice.service;
 
+import com.fitness.aiservice.dto.RecommendationPage;
 import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.dto.RecommendationSummary;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface RecommendationService {
 
     public List<RecommendationResponse> getUserRecommendations(String userId);
+    public RecommendationPage<RecommendationResponse> getUserRecommendationsPage(String userId, String cursor, int size);
+    public RecommendationPage<RecommendationSummary> getUserRecommendationSummaries(String userId, String cursor, int size);
+    public void exportUserRecommendations(String userId, boolean summary, OutputStream out) throws IOException;
     public RecommendationResponse getActivityRecommendation(String activityId);
+    public Flux<ServerSentEvent<Object>> streamActivityRecommendation(String userId, String activityId);
 
 }
@@ -1,34 +1,257 @@
 package com.fitness.aiservice.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.config.CacheConfig;
+import com.fitness.aiservice.dto.RecommendationPage;
 import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.dto.RecommendationSummary;
+import com.fitness.aiservice.mapper.RecommendationMapper;
+import com.fitness.aiservice.model.Activity;
 import com.fitness.aiservice.model.Recommendation;
 import com.fitness.aiservice.repository.RecommendationRepository;
-import org.modelmapper.ModelMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
+@Slf4j
 public class RecommendationServiceImpl implements RecommendationService{
 
+    // Newest first; served by the (userId, createdAt, _id) index
+    private static final Sort HISTORY_ORDER=Sort.by(Sort.Direction.DESC,"createdAt","id");
+
     @Autowired
     private RecommendationRepository recommendationRepository;
     @Autowired
-    private ModelMapper modelMapper;
+    private RecommendationMapper recommendationMapper;
+    @Autowired
+    private ActivityAIService activityAIService;
+    @Autowired
+    private ActivityLookup activityLookup;
+
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${ai.recommendation.history.max-page-size:100}")
+    private int maxPageSize;
+    @Value("${ai.recommendation.history.export-batch-size:500}")
+    private int exportBatchSize;
+    @Value("${ai.recommendation.history.headline-length:120}")
+    private int headlineLength;
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.USER_RECOMMENDATIONS, key = "#userId")
     public List<RecommendationResponse> getUserRecommendations(String userId) {
 
         List<Recommendation>recommendations=recommendationRepository.findByUserId(userId);
-        List<RecommendationResponse> recommendationResponses=recommendations.stream().map(recommendation -> modelMapper.map(recommendation, RecommendationResponse.class)).toList();
+        List<RecommendationResponse> recommendationResponses=recommendations.stream().map(recommendationMapper::toResponse).toList();
         return recommendationResponses;
     }
 
     @Override
+    public RecommendationPage<RecommendationResponse> getUserRecommendationsPage(String userId, String cursor, int size) {
+        int pageSize=pageSize(size);
+        // One extra row tells whether another page follows
+        Query query=new Query(historyCriteria(userId,cursor)).with(HISTORY_ORDER).limit(pageSize+1);
+        List<Recommendation> recommendations=mongoTemplate.find(query,Recommendation.class);
+        boolean hasMore=recommendations.size()>pageSize;
+        List<Recommendation> page=hasMore ? recommendations.subList(0,pageSize) : recommendations;
+
+        Recommendation last=page.isEmpty() ? null : page.get(page.size()-1);
+        String nextCursor=hasMore ? new RecommendationCursor(last.getCreatedAt(),last.getId()).encode() : null;
+        return new RecommendationPage<>(page.stream().map(recommendationMapper::toResponse).toList(),nextCursor);
+    }
+
+    @Override
+    public RecommendationPage<RecommendationSummary> getUserRecommendationSummaries(String userId, String cursor, int size) {
+        int pageSize=pageSize(size);
+        List<RecommendationSummary> summaries=mongoTemplate.aggregate(summaryAggregation(historyCriteria(userId,cursor),pageSize+1),RecommendationSummary.class)
+                .getMappedResults();
+        boolean hasMore=summaries.size()>pageSize;
+        List<RecommendationSummary> page=hasMore ? summaries.subList(0,pageSize) : summaries;
+
+        RecommendationSummary last=page.isEmpty() ? null : page.get(page.size()-1);
+        String nextCursor=hasMore ? new RecommendationCursor(last.getCreatedAt(),last.getId()).encode() : null;
+        return new RecommendationPage<>(page,nextCursor);
+    }
+
+    @Override
+    public void exportUserRecommendations(String userId, boolean summary, OutputStream out) throws IOException {
+        Criteria criteria=Criteria.where("userId").is(userId);
+        // One JSON document per line, read from an open cursor so the history never sits in memory
+        try(Stream<?> recommendations=summary
+                    ? mongoTemplate.aggregateStream(summaryAggregation(criteria,null),RecommendationSummary.class)
+                    : mongoTemplate.stream(new Query(criteria).with(HISTORY_ORDER).cursorBatchSize(exportBatchSize),Recommendation.class)
+                            .map(recommendationMapper::toResponse);
+            JsonGenerator generator=objectMapper.createGenerator(out)){
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            Iterator<?> iterator=recommendations.iterator();
+            int written=0;
+            while(iterator.hasNext()){
+                generator.writeObject(iterator.next());
+                generator.writeRaw('\n');
+                if(++written%exportBatchSize==0){
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    private int pageSize(int size) {
+        return Math.max(1,Math.min(size,maxPageSize));
+    }
+
+    private static Criteria historyCriteria(String userId, String cursor) {
+        Criteria criteria=Criteria.where("userId").is(userId);
+        if(cursor!=null && !cursor.isBlank()){
+            criteria=new Criteria().andOperator(criteria,decodeCursor(cursor).after());
+        }
+        return criteria;
+    }
+
+    // A cursor the client made up or mangled is a bad request, not a server error
+    private static RecommendationCursor decodeCursor(String cursor) {
+        try{
+            return RecommendationCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,e.getMessage(),e);
+        }
+    }
+
+    /**
+     * Summaries in history order; the headline is cut with $substrCP in Mongo,
+     * so the full text and the lists are never sent over the wire.
+     */
+    TypedAggregation<Recommendation> summaryAggregation(Criteria criteria, Integer limit) {
+        AggregationExpression text=ConditionalOperators.ifNull("recommendation").then("");
+        AggregationExpression headline=ConditionalOperators
+                .when(ComparisonOperators.valueOf(StringOperators.valueOf(text).lengthCP()).greaterThanValue(headlineLength))
+                .then(StringOperators.valueOf(StringOperators.valueOf(text).substringCP(0,headlineLength)).concat("\u2026"))
+                .otherwiseValueOf(text);
+
+        List<AggregationOperation> operations=new ArrayList<>();
+        operations.add(Aggregation.match(criteria));
+        operations.add(Aggregation.sort(HISTORY_ORDER));
+        if(limit!=null){
+            operations.add(Aggregation.limit(limit));
+        }
+        operations.add(Aggregation.project("activityId","type","createdAt").and(headline).as("headline"));
+        return Aggregation.newAggregation(Recommendation.class,operations)
+                .withOptions(AggregationOptions.builder().cursorBatchSize(exportBatchSize).build());
+    }
+
+    @Override
+    @Cacheable(cacheNames = CacheConfig.ACTIVITY_RECOMMENDATIONS, key = "#activityId")
     public RecommendationResponse getActivityRecommendation(String activityId) {
         Recommendation recommendation=recommendationRepository.findByActivityId(activityId).orElseThrow(()->new RuntimeException("No recommendation found with this activityID"));
-        RecommendationResponse recommendationResponse=modelMapper.map(recommendation,RecommendationResponse.class);
+        RecommendationResponse recommendationResponse=recommendationMapper.toResponse(recommendation);
         return recommendationResponse;
     }
+
+    /**
+     * Streams "token" events with the answer text as Gemini generates it, then
+     * stores the parsed recommendation and ends with a "recommendation" event.
+     * An existing or cached recommendation is sent as the only event; a failure
+     * ends the stream with an "error" event.
+     *
+     * The activity is read from ACTIVITYSERVICE, never taken from the request,
+     * and both it and an existing recommendation must belong to the user;
+     * otherwise the activity is reported as not found.
+     */
+    @Override
+    public Flux<ServerSentEvent<Object>> streamActivityRecommendation(String userId, String activityId) {
+        Optional<Recommendation> existing=recommendationRepository.findByActivityId(activityId);
+        if(existing.isPresent()){
+            if(!userId.equals(existing.get().getUserId())){
+                throw activityNotFound(activityId);
+            }
+            return Flux.just(recommendationEvent(existing.get()));
+        }
+        Activity activity=activityLookup.findUserActivity(userId,activityId).orElseThrow(()->activityNotFound(activityId));
+        Optional<Recommendation> cached=activityAIService.findCachedRecommendation(activity);
+        if(cached.isPresent()){
+            return Flux.just(recommendationEvent(store(cached.get())));
+        }
+
+        return Flux.defer(()->{
+            StringBuilder answer=new StringBuilder();
+            Flux<ServerSentEvent<Object>> tokens=activityAIService.streamRecommendationText(activity)
+                    .doOnNext(answer::append)
+                    .map(text->ServerSentEvent.<Object>builder(text).event("token").build());
+            // Parsing and the Mongo write block, so keep them off the HTTP client's event loop
+            Mono<ServerSentEvent<Object>> result=Mono.fromCallable(()->{
+                Recommendation recommendation=activityAIService.completeStreamedRecommendation(activity,answer.toString());
+                return recommendationEvent(store(recommendation));
+            }).subscribeOn(Schedulers.boundedElastic());
+            return tokens.concatWith(result);
+        }).onErrorResume(e->{
+            log.error("Streaming recommendation failed for activity {}",activity.getActivityId(),e);
+            return Flux.just(ServerSentEvent.<Object>builder("Recommendation failed").event("error").build());
+        });
+    }
+
+    /**
+     * Saves the recommendation, or returns the one the Kafka listener stored for
+     * the same activity in the meantime (activityId is unique).
+     */
+    private Recommendation store(Recommendation recommendation) {
+        try{
+            Recommendation saved=recommendationRepository.save(recommendation);
+            Cache userRecommendations=cacheManager.getCache(CacheConfig.USER_RECOMMENDATIONS);
+            if(userRecommendations!=null && saved.getUserId()!=null){
+                userRecommendations.evict(saved.getUserId());
+            }
+            return saved;
+        } catch (DuplicateKeyException e) {
+            return recommendationRepository.findByActivityId(recommendation.getActivityId()).orElseThrow(()->e);
+        }
+    }
+
+    private static ResponseStatusException activityNotFound(String activityId) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND,"No activity found with this activityID: "+activityId);
+    }
+
+    private ServerSentEvent<Object> recommendationEvent(Recommendation recommendation) {
+        return ServerSentEvent.<Object>builder(recommendationMapper.toResponse(recommendation))
+                .id(recommendation.getActivityId())
+                .event("recommendation")
+                .build();
+    }
 }
@@ -0,0 +1,96 @@
+package com.fitness.aiservice.gemini;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	private static final Duration FAST = Duration.ofMillis(100);
+
+	@Test
+	void waitersSignalSaturationUntilCapacityIsBack() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 4, Duration.ofSeconds(1));
+		List<Boolean> signals = new CopyOnWriteArrayList<>();
+		limiter.onSaturationChange(signals::add);
+
+		limiter.acquire(FAST);
+		CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+			try {
+				limiter.acquire(Duration.ofSeconds(5));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (signals.isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(List.of(true), signals);
+		assertFalse(waiter.isDone());
+
+		limiter.release(FAST, false);
+		waiter.get(5, TimeUnit.SECONDS);
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	@Test
+	void theSaturationListenerRunsWithoutTheLimiterLock() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 4, Duration.ofSeconds(1));
+		List<Integer> limitsSeenByListener = new CopyOnWriteArrayList<>();
+		limiter.onSaturationChange(saturated -> {
+			try {
+				// Another thread needs the lock; this would time out if the caller still held it
+				limitsSeenByListener.add(CompletableFuture.supplyAsync(limiter::getLimit).get(1, TimeUnit.SECONDS));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		limiter.acquire(FAST);
+		assertThrows(TimeoutException.class, () -> limiter.acquire(Duration.ofMillis(50)));
+
+		assertEquals(List.of(1, 1), limitsSeenByListener);
+	}
+
+	@Test
+	void saturationEndsWhenTheLastWaiterTimesOut() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, Duration.ofSeconds(1));
+		List<Boolean> signals = new CopyOnWriteArrayList<>();
+		limiter.onSaturationChange(signals::add);
+
+		limiter.acquire(FAST);
+		assertThrows(TimeoutException.class, () -> limiter.acquire(Duration.ofMillis(20)));
+
+		assertEquals(List.of(true, false), signals);
+	}
+
+	@Test
+	void limitGrowsOnFastCallsAndShrinksOnDrops() throws Exception {
+		AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, Duration.ofSeconds(1));
+		for (int i = 0; i < 40; i++) {
+			limiter.acquire(FAST);
+			limiter.release(FAST, false);
+		}
+		int grown = limiter.getLimit();
+		assertTrue(grown > 4, "limit should grow but was " + grown);
+
+		limiter.acquire(FAST);
+		limiter.release(FAST, true);
+		assertTrue(limiter.getLimit() < grown);
+
+		AdaptiveConcurrencyLimiter exhausted = new AdaptiveConcurrencyLimiter(1, 1, 1, Duration.ofSeconds(1));
+		exhausted.acquire(FAST);
+		assertThrows(TimeoutException.class, () -> exhausted.acquire(Duration.ofMillis(20)));
+	}
+}
@@ -0,0 +1,76 @@
+package com.fitness.aiservice.gemini;
+
+import com.fitness.aiservice.dto.GeminiAnswer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiResponseParserTest {
+
+	private final GeminiResponseParser parser = new GeminiResponseParser();
+
+	@Test
+	void bindsTheFencedAnswerAndReadsUsage() throws IOException {
+		String response = resource("/gemini-response.json");
+
+		GeminiResponseParser.Envelope envelope = parser.parseEnvelope(response);
+		GeminiAnswer answer = parser.readAnswer(envelope);
+
+		assertTrue(answer.getAnalysis().getOverall().startsWith("Solid 45 minute run"));
+		assertEquals("Cadence", answer.getImprovements().get(0).getArea());
+		assertEquals("Long Slow Run", answer.getSuggestions().get(1).getWorkout());
+		assertEquals(3, answer.getSafety().size());
+		assertNull(answer.getActivityId());
+		assertEquals(312, envelope.promptTokens());
+		assertEquals(401, envelope.candidatesTokens());
+		assertEquals(713, envelope.totalTokens());
+	}
+
+	@Test
+	void bindsBatchAnswers() throws IOException {
+		List<GeminiAnswer> answers = parser.readBatchAnswer(parser.parseEnvelope(resource("/gemini-batch-response.json")));
+
+		assertEquals(List.of("activity-1", "activity-2"), answers.stream().map(GeminiAnswer::getActivityId).toList());
+		assertEquals(2, answers.get(1).getImprovements().size());
+	}
+
+	@Test
+	void onlyTheFirstCandidateAndPartAreRead() throws IOException {
+		String response = """
+				{"promptFeedback":{"blockReason":null},
+				 "candidates":[
+				   {"index":0,"content":{"role":"model","parts":[{"text":"first"},{"text":"second"}]},"safetyRatings":[{"a":[1,2]}]},
+				   {"content":{"parts":[{"text":"other candidate"}]}}],
+				 "usageMetadata":{"promptTokensDetails":[{"tokenCount":3}],"totalTokenCount":9}}
+				""";
+
+		GeminiResponseParser.Envelope envelope = parser.parseEnvelope(response);
+
+		assertEquals("first", envelope.text());
+		assertEquals(9, envelope.totalTokens());
+		assertNull(parser.parseEnvelope("{\"usageMetadata\":{\"totalTokenCount\":1}}").text());
+		assertThrows(IOException.class, () -> parser.readAnswer(parser.parseEnvelope("{\"candidates\":[]}")));
+	}
+
+	@Test
+	void stripsCodeFences() {
+		assertEquals("{\"a\":1}", GeminiResponseParser.stripCodeFence("```json\n{\"a\":1}\n```"));
+		assertEquals("{\"a\":1}", GeminiResponseParser.stripCodeFence("  ```\n{\"a\":1}```  \n"));
+		assertEquals("{\"a\":1}", GeminiResponseParser.stripCodeFence("{\"a\":1}"));
+		assertEquals("", GeminiResponseParser.stripCodeFence("```"));
+	}
+
+	private static String resource(String name) throws IOException {
+		try (InputStream in = GeminiResponseParserTest.class.getResourceAsStream(name)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
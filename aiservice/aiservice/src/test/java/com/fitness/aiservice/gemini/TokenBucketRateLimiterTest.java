@@ -0,0 +1,24 @@
+package com.fitness.aiservice.gemini;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBucketRateLimiterTest {
+
+	@Test
+	void requestsAreSpacedOutAfterTheBurst() {
+		AtomicLong now = new AtomicLong();
+		TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(60, 2, now::get);
+
+		assertEquals(Duration.ZERO, rateLimiter.reserve());
+		assertEquals(Duration.ZERO, rateLimiter.reserve());
+		assertEquals(Duration.ofSeconds(1), rateLimiter.reserve());
+
+		now.addAndGet(Duration.ofSeconds(10).toNanos());
+		assertEquals(Duration.ZERO, rateLimiter.reserve());
+	}
+}
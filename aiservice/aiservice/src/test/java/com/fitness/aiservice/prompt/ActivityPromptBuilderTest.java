@@ -0,0 +1,89 @@
+package com.fitness.aiservice.prompt;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityPromptBuilderTest {
+
+	private final ActivityPromptBuilder builder = new ActivityPromptBuilder(new DefaultResourceLoader(), new PromptProperties());
+
+	@Test
+	void metricsAreRenderedInCanonicalOrder() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("distanceKm", 7.9);
+		metrics.put("splits", Map.of("km2", 341, "km1", 338));
+		metrics.put("averageHeartRate", 148);
+		Map<String, Object> reordered = new LinkedHashMap<>();
+		reordered.put("averageHeartRate", 148);
+		reordered.put("splits", Map.of("km1", 338, "km2", 341));
+		reordered.put("distanceKm", 7.9);
+
+		String prompt = builder.build(activity("activity-1", metrics));
+
+		assertEquals(prompt, builder.build(activity("activity-1", reordered)));
+		assertTrue(prompt.contains("""
+				Activity Type: RUNNING
+				Duration: 45 minutes
+				Calories Burned: 520
+				Additional Metrics: {averageHeartRate=148, distanceKm=7.9, splits={km1=338, km2=341}}
+				"""));
+	}
+
+	@Test
+	void promptsOfOneVersionShareTheInstructionPrefix() {
+		String prefix = builder.template(ActivityType.RUNNING).prefix();
+
+		assertTrue(prefix.startsWith("Analyse the fitness activity"));
+		assertTrue(prefix.contains("EXACT json format"));
+		assertFalse(prefix.contains("RUNNING"));
+		assertTrue(builder.build(activity("activity-1", Map.of("a", 1))).startsWith(prefix));
+		assertTrue(builder.build(activity("activity-2", null)).startsWith(prefix));
+	}
+
+	@Test
+	void versionCanBeChosenPerActivityType() {
+		PromptProperties properties = new PromptProperties();
+		properties.getVersions().put(ActivityType.CYCLING, "test");
+		ActivityPromptBuilder versioned = new ActivityPromptBuilder(new DefaultResourceLoader(), properties);
+		Activity ride = activity("activity-1", Map.of("cadence", 90));
+		ride.setActivityType(ActivityType.CYCLING);
+
+		assertEquals("Short test template for CYCLING: 45 minutes, {cadence=90}\n", versioned.build(ride));
+		assertTrue(versioned.build(activity("activity-2", null)).startsWith("Analyse the fitness activity"));
+
+		properties.getVersions().put(ActivityType.CYCLING, "missing");
+		assertThrows(IllegalStateException.class, () -> new ActivityPromptBuilder(new DefaultResourceLoader(), properties));
+	}
+
+	@Test
+	void batchPromptStatesInstructionsOnce() {
+		String prompt = builder.buildBatch(List.of(activity("activity-1", Map.of("a", 1)), activity("activity-2", null)));
+
+		assertEquals(1, prompt.split("EXACT json format", -1).length - 1);
+		assertTrue(prompt.contains("\nActivity ID: activity-1\nActivity Type: RUNNING\n"));
+		assertTrue(prompt.contains("\nActivity ID: activity-2\n"));
+		assertTrue(prompt.endsWith("with the Activity ID of each activity.\n"));
+	}
+
+	private static Activity activity(String activityId, Map<String, Object> metrics) {
+		Activity activity = new Activity();
+		activity.setActivityId(activityId);
+		activity.setUserId("user-1");
+		activity.setActivityType(ActivityType.RUNNING);
+		activity.setDuration(45);
+		activity.setCaloriesBurned(520);
+		activity.setAdditionalMetrics(metrics);
+		return activity;
+	}
+}
@@ -0,0 +1,232 @@
+package com.fitness.aiservice.repository;
+
+import com.fitness.aiservice.dto.RecommendationPage;
+import com.fitness.aiservice.dto.RecommendationResponse;
+import com.fitness.aiservice.dto.RecommendationSummary;
+import com.fitness.aiservice.mapper.RecommendationMapper;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.service.RecommendationServiceImpl;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.mapstruct.factory.Mappers;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the recommendation queries against a real MongoDB, with the indexes
+ * declared on Recommendation, and fails if a query plan scans the whole
+ * collection (or sorts history pages in memory).
+ * The server is a MongoDB container (Testcontainers, so Docker is required);
+ * set -Dmongodb.explain.uri to use a running server instead. Without either it
+ * is reported as skipped, so builds without Docker stay green.
+ */
+@EnabledIf("mongoAvailable")
+class RecommendationQueryPlanTest {
+
+	private static final String URI = System.getProperty("mongodb.explain.uri");
+
+	private static final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+	private static MongoDBContainer mongo;
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+	private static RecommendationRepository recommendationRepository;
+	private static RecommendationServiceImpl recommendationService;
+
+	static boolean mongoAvailable() {
+		return URI != null || DockerClientFactory.instance().isDockerAvailable();
+	}
+
+	@BeforeAll
+	static void connect() {
+		String uri = URI;
+		if (uri == null) {
+			mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+			mongo.start();
+			uri = mongo.getConnectionString();
+		}
+		client = MongoClients.create(MongoClientSettings.builder()
+				.applyConnectionString(new ConnectionString(uri))
+				.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+				.addCommandListener(new CommandListener() {
+					@Override
+					public void commandStarted(CommandStartedEvent event) {
+						if ("find".equals(event.getCommandName()) || "aggregate".equals(event.getCommandName())) {
+							commands.add(event.getCommand().clone());
+						}
+					}
+				})
+				.build());
+		mongoTemplate = new MongoTemplate(client, "query_plan_" + System.currentTimeMillis());
+		MongoMappingContext mappingContext = new MongoMappingContext();
+		mappingContext.setAutoIndexCreation(true);
+		IndexResolver.create(mappingContext).resolveIndexFor(Recommendation.class)
+				.forEach(mongoTemplate.indexOps(Recommendation.class)::createIndex);
+
+		recommendationRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(RecommendationRepository.class);
+		recommendationService = new RecommendationServiceImpl();
+		ReflectionTestUtils.setField(recommendationService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(recommendationService, "recommendationMapper", Mappers.getMapper(RecommendationMapper.class));
+		ReflectionTestUtils.setField(recommendationService, "maxPageSize", 100);
+		ReflectionTestUtils.setField(recommendationService, "exportBatchSize", 500);
+		ReflectionTestUtils.setField(recommendationService, "headlineLength", 5);
+		recommendationRepository.saveAll(IntStream.range(0, 200).mapToObj(RecommendationQueryPlanTest::recommendation).toList());
+	}
+
+	@AfterAll
+	static void dropDatabase() {
+		if (mongoTemplate != null) {
+			mongoTemplate.getDb().drop();
+		}
+		if (client != null) {
+			client.close();
+		}
+		if (mongo != null) {
+			mongo.stop();
+		}
+	}
+
+	@BeforeEach
+	void clearRecordedQueries() {
+		commands.clear();
+	}
+
+	@Test
+	void findByUserIdUsesAnIndex() {
+		assertEquals(20, recommendationRepository.findByUserId("user-3").size());
+
+		assertNoCollectionScan(lastCommand());
+	}
+
+	@Test
+	void findByActivityIdUsesAnIndex() {
+		assertTrue(recommendationRepository.findByActivityId("activity-42").isPresent());
+
+		assertNoCollectionScan(lastCommand());
+	}
+
+	@Test
+	void existingActivityIdsAreLookedUpByIndex() {
+		assertEquals(2, recommendationRepository.findActivityIdsIn(List.of("activity-1", "activity-2", "activity-999")).size());
+
+		assertNoCollectionScan(lastCommand());
+	}
+
+	@Test
+	void historyPagesAreServedInIndexOrder() {
+		RecommendationPage<RecommendationResponse> first = recommendationService.getUserRecommendationsPage("user-3", null, 6);
+		List<String> firstPage = stages(lastCommand());
+		RecommendationPage<RecommendationResponse> second = recommendationService.getUserRecommendationsPage("user-3", first.getNextCursor(), 6);
+		List<String> nextPage = stages(lastCommand());
+
+		assertEquals(6, second.getRecommendations().size());
+		assertTrue(first.getRecommendations().get(5).getCreatedAt().isAfter(second.getRecommendations().get(0).getCreatedAt()));
+		for (List<String> stages : List.of(firstPage, nextPage)) {
+			assertFalse(stages.contains("COLLSCAN"), "Collection scan: " + stages);
+			assertFalse(stages.contains("SORT"), "In-memory sort: " + stages);
+		}
+	}
+
+	@Test
+	void summariesAreProjectedInTheDatabase() {
+		RecommendationPage<RecommendationSummary> page = recommendationService.getUserRecommendationSummaries("user-3", null, 20);
+		List<String> stages = stages(lastCommand());
+
+		assertEquals(20, page.getRecommendations().size());
+		assertNull(page.getNextCursor());
+		assertEquals("Keep \u2026", page.getRecommendations().get(0).getHeadline());
+		assertFalse(stages.contains("COLLSCAN"), "Collection scan: " + stages);
+		assertFalse(stages.contains("SORT"), "In-memory sort: " + stages);
+	}
+
+	@Test
+	void activityIdIsUnique() {
+		assertThrows(DuplicateKeyException.class, () -> recommendationRepository.insert(recommendation(7)));
+	}
+
+	private static Recommendation recommendation(int i) {
+		return Recommendation.builder()
+				.userId("user-" + i % 10)
+				.activityId("activity-" + i)
+				.type("RUNNING")
+				.recommendation("Keep it up")
+				.improvements(List.of("Cadence: aim for 170-180 steps per minute"))
+				.createdAt(LocalDateTime.of(2025, 1, 1, 7, 0).plusHours(i))
+				.build();
+	}
+
+	private static BsonDocument lastCommand() {
+		assertFalse(commands.isEmpty(), "No query was sent");
+		return commands.get(commands.size() - 1);
+	}
+
+	private static void assertNoCollectionScan(BsonDocument command) {
+		List<String> stages = stages(command);
+		assertFalse(stages.contains("COLLSCAN"), "Collection scan for " + command.toJson() + ": " + stages);
+	}
+
+	/**
+	 * @return every stage of the winning plan of the recorded find or aggregate command
+	 */
+	private static List<String> stages(BsonDocument recorded) {
+		BsonDocument command = new BsonDocument();
+		for (String key : List.of("find", "aggregate", "pipeline", "filter", "sort", "projection", "skip", "limit")) {
+			if (recorded.containsKey(key)) {
+				command.put(key, recorded.get(key));
+			}
+		}
+		if (command.containsKey("aggregate")) {
+			command.put("cursor", new BsonDocument());
+		}
+		Document explain = mongoTemplate.getDb().runCommand(new Document("explain", command).append("verbosity", "queryPlanner"));
+		List<String> stages = new ArrayList<>();
+		collectStages(explain, false, stages);
+		return stages;
+	}
+
+	// Aggregations nest their query plan (under $cursor, or in stages on older servers), so look for every winningPlan
+	private static void collectStages(Object node, boolean inPlan, List<String> stages) {
+		if (node instanceof Document document) {
+			document.forEach((key, value) -> {
+				if (inPlan && "stage".equals(key)) {
+					stages.add(String.valueOf(value));
+				} else {
+					collectStages(value, inPlan || "winningPlan".equals(key), stages);
+				}
+			});
+		} else if (node instanceof List<?> list) {
+			list.forEach(child -> collectStages(child, inPlan, stages));
+		}
+	}
+}
@@ -0,0 +1,226 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fitness.aiservice.gemini.GeminiClientProperties;
+import com.fitness.aiservice.gemini.GeminiResponseParser;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.prompt.ActivityPromptBuilder;
+import com.fitness.aiservice.prompt.PromptProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ActivityAIServiceTest {
+
+	@Test
+	void makesExactlyOneUpstreamCallPerActivity() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ActivityAIService service = service(gemini, meterRegistry);
+
+		Recommendation recommendation = service.generateRecommendation(activity("activity-1", 45));
+		service.generateRecommendation(activity("activity-2", 90));
+
+		assertEquals(2, gemini.calls.get());
+		assertEquals("activity-1", recommendation.getActivityId());
+		assertTrue(recommendation.getRecommendation().startsWith("Overall: Solid 45 minute run"));
+		assertEquals(2, recommendation.getImprovements().size());
+		assertEquals(2, meterRegistry.get("gemini.requests")
+				.tag("activityType", "RUNNING").tag("outcome", "success").timer().count());
+		assertEquals(2 * 713.0, meterRegistry.get("gemini.tokens")
+				.tag("activityType", "RUNNING").tag("kind", "total").counter().count());
+	}
+
+	@Test
+	void eachResponseIsParsedOnceForUsageAndAnswer() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse("/gemini-batch-response.json"), cannedResponse());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		GeminiResponseParser parser = spy(new GeminiResponseParser());
+		ActivityAIService service = service(gemini, meterRegistry, parser);
+
+		service.generateRecommendations(List.of(activity("activity-1", 45), activity("activity-3", 90)));
+
+		assertEquals(2, gemini.calls.get());
+		verify(parser, times(2)).parseEnvelope(anyString());
+		assertEquals(1188.0 + 713.0, meterRegistry.get("gemini.tokens")
+				.tag("activityType", "RUNNING").tag("kind", "total").counter().count());
+	}
+
+	@Test
+	void anUnreadableResponseGivesTheDefaultRecommendation() {
+		ActivityAIService service = service(new CountingGeminiService("not json"), new SimpleMeterRegistry());
+
+		Recommendation recommendation = service.generateRecommendation(activity("activity-1", 45));
+
+		assertEquals("Unable to generated detailed analysis", recommendation.getRecommendation());
+	}
+
+	@Test
+	void nearIdenticalActivitiesAreServedFromTheCache() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ActivityAIService service = service(gemini, meterRegistry);
+
+		Activity first = activity("activity-1", 45);
+		Activity similar = activity("activity-2", 46);
+		similar.setCaloriesBurned(515);
+		similar.setAdditionalMetrics(Map.of("distanceKm", 7.94, "averageHeartRate", 149));
+
+		service.generateRecommendation(first);
+		Recommendation cached = service.generateRecommendation(similar);
+
+		assertEquals(1, gemini.calls.get());
+		assertEquals("activity-2", cached.getActivityId());
+		assertEquals(2, cached.getImprovements().size());
+		assertEquals(1.0, meterRegistry.get("ai.recommendation.cache.requests")
+				.tag("result", "hit").tag("tier", "memory").counter().count());
+	}
+
+	@Test
+	void batchOfActivitiesSharesOneUpstreamCall() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse("/gemini-batch-response.json"));
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ActivityAIService service = service(gemini, meterRegistry);
+
+		List<Recommendation> recommendations = service.generateRecommendations(
+				List.of(activity("activity-1", 45), activity("activity-2", 30)));
+
+		assertEquals(1, gemini.calls.get());
+		assertEquals(List.of("activity-1", "activity-2"),
+				recommendations.stream().map(Recommendation::getActivityId).toList());
+		assertTrue(recommendations.get(1).getRecommendation().startsWith("Overall: Solid 30 minute run"));
+		assertEquals(2, recommendations.get(1).getSuggestions().size());
+		assertEquals(1188.0, meterRegistry.get("gemini.tokens")
+				.tag("activityType", "RUNNING").tag("kind", "total").counter().count());
+	}
+
+	@Test
+	void activitiesMissingFromTheBatchAnswerFallBackToSingleCalls() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse("/gemini-batch-response.json"),
+				cannedResponse());
+		ActivityAIService service = service(gemini, new SimpleMeterRegistry());
+
+		List<Recommendation> recommendations = service.generateRecommendations(
+				List.of(activity("activity-1", 45), activity("activity-3", 90)));
+
+		assertEquals(2, gemini.calls.get());
+		assertEquals("activity-3", recommendations.get(1).getActivityId());
+		assertTrue(recommendations.get(1).getRecommendation().startsWith("Overall: Solid 45 minute run"));
+	}
+
+	@Test
+	void streamedAnswerIsParsedButNotCached() throws IOException {
+		CountingGeminiService gemini = new CountingGeminiService(cannedResponse());
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ActivityAIService service = service(gemini, meterRegistry);
+		Activity activity = activity("activity-1", 45);
+
+		List<String> chunks = service.streamRecommendationText(activity).collectList().block();
+		Recommendation recommendation = service.completeStreamedRecommendation(activity, String.join("", chunks));
+
+		assertEquals(3, chunks.size());
+		assertTrue(recommendation.getRecommendation().startsWith("Overall: Solid 45 minute run"));
+		assertEquals(713.0, meterRegistry.get("gemini.tokens")
+				.tag("activityType", "RUNNING").tag("kind", "total").counter().count());
+		assertFalse(service.findCachedRecommendation(activity("activity-2", 45)).isPresent());
+	}
+
+	private static ActivityAIService service(GeminiService gemini, SimpleMeterRegistry meterRegistry) {
+		return service(gemini, meterRegistry, new GeminiResponseParser());
+	}
+
+	private static ActivityAIService service(GeminiService gemini, SimpleMeterRegistry meterRegistry, GeminiResponseParser parser) {
+		RecommendationCache cache = new RecommendationCache(null, meterRegistry, true, 100,
+				Duration.ofHours(1), false, 5, 25, 2);
+		ActivityPromptBuilder prompts = new ActivityPromptBuilder(new DefaultResourceLoader(), new PromptProperties());
+		return new ActivityAIService(new GeminiRequestAccounting(gemini, meterRegistry, parser), cache, parser, prompts);
+	}
+
+	private static Activity activity(String activityId, int duration) {
+		Activity activity = new Activity();
+		activity.setActivityId(activityId);
+		activity.setUserId("user-1");
+		activity.setActivityType(ActivityType.RUNNING);
+		activity.setDuration(duration);
+		activity.setCaloriesBurned(520);
+		activity.setAdditionalMetrics(Map.of("averageHeartRate", 148, "distanceKm", 7.9));
+		return activity;
+	}
+
+	static String cannedResponse() throws IOException {
+		return cannedResponse("/gemini-response.json");
+	}
+
+	static String cannedResponse(String resource) throws IOException {
+		try (InputStream in = ActivityAIServiceTest.class.getResourceAsStream(resource)) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	static class CountingGeminiService extends GeminiService {
+
+		private static final ObjectMapper MAPPER = new ObjectMapper();
+
+		final AtomicInteger calls = new AtomicInteger();
+		private final String[] responses;
+
+		// Answers the calls in order, repeating the last response
+		CountingGeminiService(String... responses) {
+			super(WebClient.create(), new GeminiClientProperties(), null, null);
+			this.responses = responses;
+		}
+
+		@Override
+		public String getRecommendations(String details) {
+			int call = calls.getAndIncrement();
+			return responses[Math.min(call, responses.length - 1)];
+		}
+
+		// Splits the answer text of the first response into three stream chunks
+		@Override
+		public Flux<String> streamRecommendations(String details) {
+			calls.incrementAndGet();
+			try {
+				JsonNode root = MAPPER.readTree(responses[0]);
+				String text = root.path("candidates").path(0).path("content").path("parts").path(0).path("text").asText();
+				int third = text.length() / 3;
+				List<String> parts = List.of(text.substring(0, third), text.substring(third, 2 * third), text.substring(2 * third));
+				List<String> chunks = new ArrayList<>();
+				for (int i = 0; i < parts.size(); i++) {
+					ObjectNode chunk = MAPPER.createObjectNode();
+					chunk.putArray("candidates").addObject().putObject("content").putArray("parts").addObject().put("text", parts.get(i));
+					if (i == parts.size() - 1) {
+						chunk.set("usageMetadata", root.path("usageMetadata"));
+					}
+					chunks.add(chunk.toString());
+				}
+				return Flux.fromIterable(chunks);
+			} catch (IOException e) {
+				return Flux.error(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ActivityMessageListenerTest {
+
+	private final ActivityAIService activityAIService = mock(ActivityAIService.class);
+	private final RecommendationRepository recommendationRepository = mock(RecommendationRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void correlationIdHeaderIsInTheMdcWhileGenerating() {
+		AtomicReference<String> mdcDuringGeneration = new AtomicReference<>();
+		when(recommendationRepository.findActivityIdsIn(anyCollection())).thenReturn(List.of());
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenAnswer(invocation -> {
+			mdcDuringGeneration.set(MDC.get(ActivityMessageListener.CORRELATION_ID_MDC_KEY));
+			return Recommendation.builder().userId("user-1").activityId("activity-1").build();
+		});
+		ConsumerRecord<String, Activity> record = new ConsumerRecord<>("activity-events", 0, 0L, "user-1", activity("activity-1"));
+		record.headers().add(ActivityMessageListener.CORRELATION_ID_HEADER, "correlation-1".getBytes(StandardCharsets.UTF_8));
+
+		listener().onActivityEvents(List.of(record));
+
+		assertEquals("correlation-1", record.value().getCorrelationId());
+		assertEquals("correlation-1", mdcDuringGeneration.get());
+		assertNull(MDC.get(ActivityMessageListener.CORRELATION_ID_MDC_KEY));
+		assertEquals(1, meterRegistry.get("activity.events.consume.lag").timer().count());
+	}
+
+	@Test
+	void activitiesThatAlreadyHaveARecommendationAreSkipped() {
+		when(recommendationRepository.findActivityIdsIn(anyCollection()))
+				.thenReturn(List.of(Recommendation.builder().activityId("activity-1").build()));
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenAnswer(invocation -> recommendation(invocation.getArgument(0)));
+
+		listener().onActivityEvents(List.of(record(0, activity("activity-1")), record(1, activity("activity-2"))));
+
+		verify(activityAIService, never()).generateRecommendation(argThat(activity -> activity.getActivityId().equals("activity-1")));
+		verify(recommendationRepository).saveAll(List.of(recommendation(activity("activity-2"))));
+	}
+
+	@Test
+	void aFailedChunkKeepsEarlierRecommendationsAndReportsItsFirstRecord() {
+		when(recommendationRepository.findActivityIdsIn(anyCollection()))
+				.thenReturn(List.of(Recommendation.builder().activityId("activity-1").build()));
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenAnswer(invocation -> {
+			Activity activity = invocation.getArgument(0);
+			if (activity.getActivityId().equals("activity-3")) {
+				throw new IllegalStateException("Gemini unavailable");
+			}
+			return recommendation(activity);
+		});
+
+		BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class, () -> listener().onActivityEvents(List.of(
+				record(0, activity("activity-1")), record(1, activity("activity-2")),
+				record(2, activity("activity-3")), record(3, activity("activity-4")))));
+
+		assertEquals(2, failure.getIndex());
+		assertInstanceOf(IllegalStateException.class, failure.getCause());
+		verify(recommendationRepository).saveAll(List.of(recommendation(activity("activity-2"))));
+	}
+
+	@Test
+	void anUnreadableRecordFailsAtItsIndexAfterTheRecordsBeforeItAreStored() {
+		when(recommendationRepository.findActivityIdsIn(anyCollection())).thenReturn(List.of());
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenAnswer(invocation -> recommendation(invocation.getArgument(0)));
+		ConsumerRecord<String, Activity> unreadable = record(1, null);
+		SerializationUtils.deserializationException(unreadable.headers(), "{".getBytes(StandardCharsets.UTF_8),
+				new IllegalArgumentException("Unexpected end of input"), false);
+
+		BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class, () -> listener().onActivityEvents(List.of(
+				record(0, activity("activity-1")), unreadable, record(2, activity("activity-3")))));
+
+		assertEquals(1, failure.getIndex());
+		assertInstanceOf(DeserializationException.class, failure.getCause());
+		verify(recommendationRepository).saveAll(List.of(recommendation(activity("activity-1"))));
+		verify(activityAIService, never()).generateRecommendation(argThat(activity -> activity.getActivityId().equals("activity-3")));
+	}
+
+	@Test
+	void aBatchPastItsTimeoutIsRedeliveredAndStoresLateRecommendations() throws Exception {
+		when(recommendationRepository.findActivityIdsIn(anyCollection())).thenReturn(List.of());
+		CountDownLatch slowCall = new CountDownLatch(1);
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenAnswer(invocation -> {
+			Activity activity = invocation.getArgument(0);
+			if (activity.getActivityId().equals("activity-2")) {
+				slowCall.await();
+			}
+			return recommendation(activity);
+		});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			ActivityMessageListener listener = new ActivityMessageListener(activityAIService, recommendationRepository,
+					new TaskExecutorAdapter(executor), new ConcurrentMapCacheManager(), meterRegistry);
+			ReflectionTestUtils.setField(listener, "batchTimeout", Duration.ofMillis(200));
+
+			BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class, () -> listener.onActivityEvents(List.of(
+					record(0, activity("activity-1")), record(1, activity("activity-2")), record(2, activity("activity-3")))));
+
+			assertEquals(1, failure.getIndex());
+			assertInstanceOf(TimeoutException.class, failure.getCause());
+			verify(recommendationRepository).saveAll(List.of(recommendation(activity("activity-1"))));
+
+			slowCall.countDown();
+			verify(recommendationRepository, timeout(1000)).saveAll(List.of(recommendation(activity("activity-2"))));
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+			// Skipped once the batch had given up, it is generated on redelivery
+			verify(activityAIService, never()).generateRecommendation(argThat(activity -> activity.getActivityId().equals("activity-3")));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private ConsumerRecord<String, Activity> record(long offset, Activity activity) {
+		return new ConsumerRecord<>("activity-events", 0, offset, "user-1", activity);
+	}
+
+	private Recommendation recommendation(Activity activity) {
+		return Recommendation.builder().userId(activity.getUserId()).activityId(activity.getActivityId()).build();
+	}
+
+	private ActivityMessageListener listener() {
+		return new ActivityMessageListener(activityAIService, recommendationRepository,
+				new TaskExecutorAdapter(Runnable::run), new ConcurrentMapCacheManager(), meterRegistry);
+	}
+
+	private Activity activity(String activityId) {
+		Activity activity = new Activity();
+		activity.setUserId("user-1");
+		activity.setActivityId(activityId);
+		activity.setActivityType(ActivityType.RUNNING);
+		return activity;
+	}
+}
@@ -0,0 +1,153 @@
+package com.fitness.aiservice.service;
+
+import com.fitness.aiservice.gemini.AdaptiveConcurrencyLimiter;
+import com.fitness.aiservice.gemini.GeminiClientProperties;
+import com.fitness.aiservice.gemini.TokenBucketRateLimiter;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeminiServiceTest {
+
+	private static final String OK_BODY = "{\"candidates\":[]}";
+
+	private final AtomicInteger requests = new AtomicInteger();
+	private HttpServer server;
+	private volatile int failuresBeforeSuccess;
+	private volatile int failureStatus;
+	private volatile long delayMillis;
+	private volatile String streamQuery;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/models/test:streamGenerateContent", exchange -> {
+			requests.incrementAndGet();
+			streamQuery = exchange.getRequestURI().getQuery();
+			exchange.getRequestBody().readAllBytes();
+			exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+			exchange.sendResponseHeaders(200, 0);
+			try (OutputStream out = exchange.getResponseBody()) {
+				for (String text : new String[] { "```json\\n{", "\\\"analysis\\\":{}", "}\\n```" }) {
+					out.write(("data: {\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}\r\n\r\n")
+							.getBytes(StandardCharsets.UTF_8));
+					out.flush();
+				}
+			}
+		});
+		server.createContext("/models/test:generateContent", exchange -> {
+			int attempt = requests.incrementAndGet();
+			exchange.getRequestBody().readAllBytes();
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			boolean fail = attempt <= failuresBeforeSuccess;
+			byte[] body = (fail ? "{\"error\":{}}" : OK_BODY).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(fail ? failureStatus : 200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void rateLimitedAndUnavailableResponsesAreRetried() {
+		failuresBeforeSuccess = 2;
+		failureStatus = 429;
+		AdaptiveConcurrencyLimiter limiter = limiter();
+
+		assertEquals(OK_BODY, service(properties(), limiter).getRecommendations("prompt"));
+		assertEquals(3, requests.get());
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	@Test
+	void clientErrorsAreNotRetried() {
+		failuresBeforeSuccess = 1;
+		failureStatus = 400;
+
+		assertThrows(RuntimeException.class, () -> service(properties(), limiter()).getRecommendations("prompt"));
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	void exhaustedRetriesShrinkTheConcurrencyLimit() {
+		failuresBeforeSuccess = Integer.MAX_VALUE;
+		failureStatus = 503;
+		AdaptiveConcurrencyLimiter limiter = limiter();
+
+		assertThrows(RuntimeException.class, () -> service(properties(), limiter).getRecommendations("prompt"));
+		assertEquals(3, requests.get());
+		assertTrue(limiter.getLimit() < 8, "limit should shrink but was " + limiter.getLimit());
+	}
+
+	@Test
+	void slowResponsesTimeOut() {
+		delayMillis = 1_000;
+		GeminiClientProperties properties = properties();
+		properties.setCallTimeout(Duration.ofMillis(200));
+		properties.getRetry().setMaxRetries(0);
+
+		assertThrows(RuntimeException.class, () -> service(properties, limiter()).getRecommendations("prompt"));
+	}
+
+	@Test
+	void streamsChunksFromTheStreamingEndpoint() {
+		AdaptiveConcurrencyLimiter limiter = limiter();
+
+		List<String> chunks = service(properties(), limiter).streamRecommendations("prompt")
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(3, chunks.size());
+		assertTrue(chunks.get(1).contains("analysis"));
+		assertEquals("alt=sse", streamQuery);
+		assertEquals(0, limiter.getInFlight());
+	}
+
+	private GeminiClientProperties properties() {
+		GeminiClientProperties properties = new GeminiClientProperties();
+		properties.getRetry().setMaxRetries(2);
+		properties.getRetry().setInitialBackoff(Duration.ofMillis(10));
+		properties.getRetry().setMaxBackoff(Duration.ofMillis(50));
+		properties.getConcurrency().setAcquireTimeout(Duration.ofSeconds(5));
+		return properties;
+	}
+
+	private AdaptiveConcurrencyLimiter limiter() {
+		return new AdaptiveConcurrencyLimiter(8, 1, 32, Duration.ofSeconds(20));
+	}
+
+	private GeminiService service(GeminiClientProperties properties, AdaptiveConcurrencyLimiter limiter) {
+		GeminiService service = new GeminiService(WebClient.create(), properties,
+				new TokenBucketRateLimiter(6_000, 10), limiter);
+		ReflectionTestUtils.setField(service, "geminiApiUrl",
+				"http://localhost:" + server.getAddress().getPort() + "/models/test:generateContent");
+		ReflectionTestUtils.setField(service, "geminiApiKey", "test-key");
+		return service;
+	}
+}
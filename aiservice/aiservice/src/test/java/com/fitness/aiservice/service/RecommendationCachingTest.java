@@ -0,0 +1,158 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.config.CacheConfig;
+import com.fitness.aiservice.mapper.RecommendationMapper;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(RecommendationCachingTest.Config.class)
+class RecommendationCachingTest {
+
+	@Configuration
+	@Import({CacheConfig.class, RecommendationServiceImpl.class})
+	static class Config {
+
+		@Bean
+		CacheManager cacheManager() {
+			CaffeineCacheManager cacheManager = new CaffeineCacheManager(CacheConfig.ACTIVITY_RECOMMENDATIONS, CacheConfig.USER_RECOMMENDATIONS);
+			cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100).recordStats());
+			return cacheManager;
+		}
+
+		// Converts CacheConfig's Duration @Value as in the application
+		@Bean
+		static ConversionService conversionService() {
+			return ApplicationConversionService.getSharedInstance();
+		}
+
+		@Bean
+		RecommendationMapper recommendationMapper() {
+			return Mappers.getMapper(RecommendationMapper.class);
+		}
+	}
+
+	@MockitoBean
+	private RecommendationRepository recommendationRepository;
+	@MockitoBean
+	private ActivityAIService activityAIService;
+	@MockitoBean
+	private ActivityLookup activityLookup;
+	@MockitoBean
+	private MongoTemplate mongoTemplate;
+	@MockitoBean
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RecommendationService recommendationService;
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Test
+	void userListsExpireSoonerThanActivityRecommendations() {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager(CacheConfig.ACTIVITY_RECOMMENDATIONS, CacheConfig.USER_RECOMMENDATIONS);
+		cacheManager.setCacheSpecification("maximumSize=100,expireAfterWrite=10m");
+
+		new CacheConfig().userRecommendationsExpiry(Duration.ofSeconds(30), 100).customize(cacheManager);
+
+		assertEquals(Duration.ofMinutes(10), expireAfterWrite(cacheManager, CacheConfig.ACTIVITY_RECOMMENDATIONS));
+		assertEquals(Duration.ofSeconds(30), expireAfterWrite(cacheManager, CacheConfig.USER_RECOMMENDATIONS));
+	}
+
+	@Test
+	void aMalformedCursorIsABadRequest() {
+		ResponseStatusException rejected = assertThrows(ResponseStatusException.class,
+				() -> recommendationService.getUserRecommendationsPage("user-1", "not-a-cursor", 20));
+
+		assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+	}
+
+	@Test
+	void activityLookupsAreServedFromTheCache() {
+		when(recommendationRepository.findByActivityId("activity-1")).thenReturn(Optional.of(recommendation("user-1", "activity-1")));
+
+		recommendationService.getActivityRecommendation("activity-1");
+		recommendationService.getActivityRecommendation("activity-1");
+		recommendationService.getActivityRecommendation("activity-1");
+
+		verify(recommendationRepository, times(1)).findByActivityId("activity-1");
+		CaffeineCache cache = (CaffeineCache) cacheManager.getCache(CacheConfig.ACTIVITY_RECOMMENDATIONS);
+		assertEquals(2, cache.getNativeCache().stats().hitCount());
+	}
+
+	@Test
+	void storingARecommendationEvictsTheUsersList() {
+		when(recommendationRepository.findByUserId("user-2"))
+				.thenReturn(List.of(recommendation("user-2", "activity-2")),
+						List.of(recommendation("user-2", "activity-2"), recommendation("user-2", "activity-3")));
+		when(recommendationRepository.findActivityIdsIn(anyCollection())).thenReturn(List.of());
+		when(activityAIService.generateRecommendation(any(Activity.class))).thenReturn(recommendation("user-2", "activity-3"));
+
+		assertEquals(1, recommendationService.getUserRecommendations("user-2").size());
+		assertEquals(1, recommendationService.getUserRecommendations("user-2").size());
+
+		ActivityMessageListener listener = new ActivityMessageListener(activityAIService, recommendationRepository,
+				new TaskExecutorAdapter(Runnable::run), cacheManager, new SimpleMeterRegistry());
+		listener.processActivities(List.of(activity("user-2", "activity-3")));
+
+		assertEquals(2, recommendationService.getUserRecommendations("user-2").size());
+		verify(recommendationRepository, times(2)).findByUserId("user-2");
+	}
+
+	private Duration expireAfterWrite(CaffeineCacheManager cacheManager, String cacheName) {
+		CaffeineCache cache = (CaffeineCache) cacheManager.getCache(cacheName);
+		return cache.getNativeCache().policy().expireAfterWrite().orElseThrow().getExpiresAfter();
+	}
+
+	private Recommendation recommendation(String userId, String activityId) {
+		return Recommendation.builder()
+				.userId(userId)
+				.activityId(activityId)
+				.type("RUNNING")
+				.recommendation("Keep it up")
+				.createdAt(LocalDateTime.now())
+				.build();
+	}
+
+	private Activity activity(String userId, String activityId) {
+		Activity activity = new Activity();
+		activity.setUserId(userId);
+		activity.setActivityId(activityId);
+		activity.setActivityType(ActivityType.RUNNING);
+		return activity;
+	}
+}
@@ -0,0 +1,42 @@
+package com.fitness.aiservice.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RecommendationCursorTest {
+
+	@Test
+	void roundTripsThroughAnOpaqueToken() {
+		RecommendationCursor cursor = new RecommendationCursor(LocalDateTime.of(2025, 3, 14, 7, 30, 5, 123_000_000), "65f2b1c0e4b0a1b2c3d4e5f6");
+
+		String token = cursor.encode();
+
+		assertFalse(token.contains("|"));
+		assertEquals(cursor, RecommendationCursor.decode(token));
+	}
+
+	@Test
+	void malformedTokensAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> RecommendationCursor.decode("not a cursor!"));
+		assertThrows(IllegalArgumentException.class, () -> RecommendationCursor.decode("bm8tc2VwYXJhdG9y"));
+	}
+
+	@Test
+	void continuesAfterTheLastCreatedAtAndId() {
+		LocalDateTime createdAt = LocalDateTime.of(2025, 3, 14, 7, 30);
+
+		Document after = new RecommendationCursor(createdAt, "b").after().getCriteriaObject();
+
+		List<Document> branches = after.getList("$or", Document.class);
+		assertEquals(2, branches.size());
+		assertEquals(new Document("createdAt", new Document("$lt", createdAt)), branches.get(0));
+		assertEquals(2, branches.get(1).getList("$and", Document.class).size());
+	}
+}
@@ -0,0 +1,127 @@
+package com.fitness.aiservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fitness.aiservice.config.CacheConfig;
+import com.fitness.aiservice.mapper.RecommendationMapper;
+import com.fitness.aiservice.model.Activity;
+import com.fitness.aiservice.model.ActivityType;
+import com.fitness.aiservice.model.Recommendation;
+import com.fitness.aiservice.repository.RecommendationRepository;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(RecommendationStreamingTest.Config.class)
+class RecommendationStreamingTest {
+
+	@Configuration
+	@Import(RecommendationServiceImpl.class)
+	static class Config {
+
+		@Bean
+		CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager(CacheConfig.ACTIVITY_RECOMMENDATIONS, CacheConfig.USER_RECOMMENDATIONS);
+		}
+
+		@Bean
+		RecommendationMapper recommendationMapper() {
+			return Mappers.getMapper(RecommendationMapper.class);
+		}
+	}
+
+	@MockitoBean
+	private RecommendationRepository recommendationRepository;
+	@MockitoBean
+	private ActivityAIService activityAIService;
+	@MockitoBean
+	private ActivityLookup activityLookup;
+	@MockitoBean
+	private MongoTemplate mongoTemplate;
+	@MockitoBean
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private RecommendationService recommendationService;
+
+	@Test
+	void streamsForTheOwnersStoredActivity() {
+		when(recommendationRepository.findByActivityId("activity-1")).thenReturn(Optional.empty());
+		when(activityLookup.findUserActivity("user-1", "activity-1")).thenReturn(Optional.of(activity("user-1", "activity-1")));
+		when(activityAIService.findCachedRecommendation(any(Activity.class))).thenReturn(Optional.empty());
+		when(activityAIService.streamRecommendationText(any(Activity.class))).thenReturn(Flux.just("{\"analysis\":", "{}}"));
+		when(activityAIService.completeStreamedRecommendation(any(Activity.class), anyString()))
+				.thenAnswer(invocation -> recommendation("user-1", "activity-1"));
+		when(recommendationRepository.save(any(Recommendation.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		List<ServerSentEvent<Object>> events = recommendationService.streamActivityRecommendation("user-1", "activity-1")
+				.collectList().block();
+
+		assertEquals(List.of("token", "token", "recommendation"), events.stream().map(ServerSentEvent::event).toList());
+		verify(activityAIService).streamRecommendationText(activity("user-1", "activity-1"));
+	}
+
+	@Test
+	void someoneElsesActivityIsNotFound() {
+		when(recommendationRepository.findByActivityId("activity-2")).thenReturn(Optional.empty());
+		when(activityLookup.findUserActivity("user-1", "activity-2")).thenReturn(Optional.empty());
+
+		ResponseStatusException e = assertThrows(ResponseStatusException.class,
+				() -> recommendationService.streamActivityRecommendation("user-1", "activity-2"));
+
+		assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+		verify(activityAIService, never()).streamRecommendationText(any(Activity.class));
+		verify(recommendationRepository, never()).save(any(Recommendation.class));
+	}
+
+	@Test
+	void someoneElsesRecommendationIsNotReturned() {
+		when(recommendationRepository.findByActivityId("activity-3")).thenReturn(Optional.of(recommendation("user-2", "activity-3")));
+
+		assertThrows(ResponseStatusException.class,
+				() -> recommendationService.streamActivityRecommendation("user-1", "activity-3"));
+
+		verify(activityLookup, never()).findUserActivity(anyString(), anyString());
+	}
+
+	private Recommendation recommendation(String userId, String activityId) {
+		return Recommendation.builder()
+				.userId(userId)
+				.activityId(activityId)
+				.type("RUNNING")
+				.recommendation("Keep it up")
+				.createdAt(LocalDateTime.now())
+				.build();
+	}
+
+	private Activity activity(String userId, String activityId) {
+		Activity activity = new Activity();
+		activity.setUserId(userId);
+		activity.setActivityId(activityId);
+		activity.setActivityType(ActivityType.RUNNING);
+		return activity;
+	}
+}
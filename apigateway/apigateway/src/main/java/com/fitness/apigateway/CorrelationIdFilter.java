@@ -0,0 +1,49 @@
+package com.fitness.apigateway;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+
+/**
+ * -----------------------------------------------------------
+ * 🔹 CorrelationIdFilter
+ * -----------------------------------------------------------
+ * Runs before security, so every request gets an
+ * "X-Correlation-ID" header: the caller's own, or a new one.
+ *
+ * The header is forwarded to the downstream microservices next
+ * to "X-User-ID" and echoed on the response. ACTIVITYSERVICE
+ * copies it onto the "activity-events" Kafka records, so a
+ * recommendation can be traced back to its gateway request.
+ * -----------------------------------------------------------
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter implements WebFilter {
+
+    public static final String HEADER="X-Correlation-ID";
+
+    private static final int MAX_LENGTH=64;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String correlationId=exchange.getRequest().getHeaders().getFirst(HEADER);
+        if(correlationId==null || correlationId.isBlank() || correlationId.length()>MAX_LENGTH){
+            correlationId=UUID.randomUUID().toString();
+        }
+        String id=correlationId;
+        ServerHttpRequest request=exchange.getRequest().mutate()
+                .headers(headers->headers.set(HEADER,id))
+                .build();
+        exchange.getResponse().getHeaders().set(HEADER,id);
+        return chain.filter(exchange.mutate().request(request).build());
+    }
+}
@@ -2,21 +2,22 @@ package com.fitness.apigateway;
 
 import com.fitness.apigateway.user.RegisterRequest;
 import com.fitness.apigateway.user.UserService;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
-import java.text.ParseException;
-import java.time.Duration;
-
 
 /**
  * -----------------------------------------------------------
@@ -25,14 +26,20 @@ import java.time.Duration;
  * This reactive WebFilter intercepts every incoming HTTP request
  * passing through the API Gateway. It performs the following:
  *
- * 1️⃣ Extracts the Keycloak JWT token from the "Authorization" header.
- * 2️⃣ Parses the token to fetch user details (email, name, Keycloak ID).
+ * 1️⃣ Reads the Keycloak JWT already validated by the OAuth2
+ *     resource server from the reactive security context.
+ * 2️⃣ Uses its claims to fetch user details (email, name, Keycloak ID).
  * 3️⃣ Checks with the UserService if the user already exists in the local DB.
  * 4️⃣ If not found, it auto-registers the user in the UserService.
  * 5️⃣ Adds the user’s Keycloak ID into the request header ("X-User-ID")
- *     and forwards it to downstream microservices.
+ *     and forwards it to downstream microservices. An X-User-ID sent
+ *     by the client is always dropped; only the token's subject is
+ *     forwarded, so downstream services can trust the header.
  *
  * This ensures seamless Keycloak <-> local user synchronization.
+ *
+ * The time spent here before the request is forwarded is
+ * published as the "gateway.user.sync" timer.
  * -----------------------------------------------------------
  */
 
@@ -46,6 +53,9 @@ public class KeycloakUserSyncFilter implements WebFilter {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Core filtering logic executed for every incoming request.
      *
@@ -54,73 +64,94 @@ public class KeycloakUserSyncFilter implements WebFilter {
      */
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        // Extract userId (if already present) and Keycloak JWT token from headers
-        String userId=exchange.getRequest().getHeaders().getFirst("X-User-ID");
-        String token=exchange.getRequest().getHeaders().getFirst("Authorization");
-
-        // Parse token to extract user details into a RegisterRequest object
-        RegisterRequest registerRequest=getUserDetails(token);
+        // Never forward a client-supplied user ID
+        ServerWebExchange stripped=withoutUserIdHeader(exchange);
 
-        // If userId was not passed, use Keycloak ID from the JWT claims
-        if(userId==null){
-            userId=registerRequest.getKeycloakId();
-        }
+        Timer.Sample sample=Timer.start(meterRegistry);
 
-        // If both userId and token exist, proceed with validation & registration
-        log.info("tokken "+token);
-        log.info("userId "+userId);
-        if(userId!=null && token!=null){
-            String finalUserId = userId;
-            return userService.validateUser(userId)
-                    .flatMap(exist->{
-                        if(!exist){
-                            if(registerRequest!=null){
-                                log.info("Registering User");
-                                return userService.registerUser(registerRequest);
-                            }else {
-                                log.info("SEnding back empty");
-                                return Mono.empty();
-                            }
-                        }else {
-                            log.info("User already exists, Skipping sync");
-                            return Mono.empty();
-                        }
-                    })
+        // The oauth2ResourceServer chain has already decoded and validated the token,
+        // so the claims are read from the authenticated principal instead of re-parsing it
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(JwtAuthenticationToken.class::isInstance)
+                .map(authentication->((JwtAuthenticationToken) authentication).getToken())
+                .flatMap(jwt->{
+                    // The user is always the Keycloak ID from the validated token
+                    String userId=jwt.getSubject();
+                    if(userId==null){
+                        return Mono.just(stripped);
+                    }
+                    log.debug("userId {}",userId);
                     // After validation/registration, forward the request downstream
-                    .then(Mono.defer(()->{
-                        // Add "X-User-ID" header to identify user in downstream services
-                        ServerHttpRequest mutatedRequest=exchange.getRequest().mutate()
-                                .header("X-User-ID", finalUserId)
-                                .build();
-                        return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                    }));
-        }
-        return chain.filter(exchange);
+                    return syncUser(userId,jwt).thenReturn(withUserIdHeader(stripped,userId));
+                })
+                // Unauthenticated or non-JWT requests are forwarded without a user ID
+                .defaultIfEmpty(stripped)
+                // Only the sync itself is timed, not the downstream call
+                .doOnNext(forwarded->sample.stop(syncTimer("success")))
+                .doOnError(e->sample.stop(syncTimer("failure")))
+                .flatMap(chain::filter);
+    }
+
+    private Timer syncTimer(String outcome) {
+        return Timer.builder("gateway.user.sync")
+                .description("User validation/registration before a request is forwarded")
+                .tag("outcome",outcome)
+                .register(meterRegistry);
     }
 
     /**
-     * Extracts user details from a Keycloak-issued JWT token.
+     * Registers the user in the UserService unless it already exists there.
      *
-     * @param token - JWT access token from Authorization header
-     * @return RegisterRequest containing user info for registration
+     * @param userId - Keycloak ID of the user
+     * @param jwt    - validated token holding the user details
      */
-    private RegisterRequest getUserDetails(String token) {
-        try{
-            String tokenWithoutBearer=token.replace("Bearer","").trim();
-            SignedJWT signedJWT=SignedJWT.parse(tokenWithoutBearer);
-            JWTClaimsSet claims= signedJWT.getJWTClaimsSet();
+    private Mono<Void> syncUser(String userId, Jwt jwt) {
+        return userService.validateUser(userId)
+                .flatMap(exist->{
+                    if(!exist){
+                        log.info("Registering User");
+                        return userService.registerUser(getUserDetails(jwt)).then();
+                    }
+                    log.debug("User already exists, Skipping sync");
+                    return Mono.empty();
+                });
+    }
 
-            RegisterRequest request=new RegisterRequest();
-            request.setEmail(claims.getStringClaim("email"));
-            request.setKeycloakId(claims.getStringClaim("sub"));
-            request.setFirstName(claims.getStringClaim("given_name"));
-            request.setLastName(claims.getStringClaim("family_name"));
-            request.setPassword("dummy@123");
+    private ServerWebExchange withoutUserIdHeader(ServerWebExchange exchange) {
+        if(!exchange.getRequest().getHeaders().containsKey("X-User-ID")){
+            return exchange;
+        }
+        ServerHttpRequest mutatedRequest=exchange.getRequest().mutate()
+                .headers(headers->headers.remove("X-User-ID"))
+                .build();
+        return exchange.mutate().request(mutatedRequest).build();
+    }
 
-            return request;
+    /**
+     * Adds "X-User-ID" header to identify user in downstream services.
+     */
+    private ServerWebExchange withUserIdHeader(ServerWebExchange exchange, String userId) {
+        ServerHttpRequest mutatedRequest=exchange.getRequest().mutate()
+                .header("X-User-ID", userId)
+                .build();
+        return exchange.mutate().request(mutatedRequest).build();
+    }
 
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * Extracts user details from the validated Keycloak JWT.
+     * Only called on the registration path.
+     *
+     * @param jwt - decoded access token of the current request
+     * @return RegisterRequest containing user info for registration
+     */
+    private RegisterRequest getUserDetails(Jwt jwt) {
+        RegisterRequest request=new RegisterRequest();
+        request.setEmail(jwt.getClaimAsString("email"));
+        request.setKeycloakId(jwt.getSubject());
+        request.setFirstName(jwt.getClaimAsString("given_name"));
+        request.setLastName(jwt.getClaimAsString("family_name"));
+        request.setPassword("dummy@123");
+        return request;
     }
 }
@@ -1,16 +1,21 @@
 package com.fitness.apigateway;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.AndServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
 
 
+import java.net.InetSocketAddress;
 import java.util.Arrays;
 import java.util.List;
 
@@ -25,7 +30,10 @@ import java.util.List;
  *
  * Responsibilities:
  * 1️⃣ Disable CSRF (not required for stateless REST APIs).
- * 2️⃣ Require all incoming requests to be authenticated.
+ * 2️⃣ Require all incoming requests to be authenticated
+ *     (except the health check). The Prometheus scrape is only
+ *     open on the internal management port; other actuator
+ *     endpoints are never served to clients.
  * 3️⃣ Integrate OAuth2 Resource Server with JWT validation
  *     — this ensures that only valid tokens issued by Keycloak
  *       (or any configured identity provider) are accepted.
@@ -41,18 +49,27 @@ public class SecurityConfig {
      * Defines the main reactive security filter chain for the Gateway.
      *
      * @param http the ServerHttpSecurity object used to build the security chain
+     * @param managementPort management.server.port, the internal port the actuator runs on
      * @return SecurityWebFilterChain defining security behavior for all requests
      */
 
 
     @Bean
-    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http){
+    public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http,
+                                                            @Value("${management.server.port:-1}") int managementPort){
         return http
                 // Disable Cross-Site Request Forgery since we’re working with stateless JWT tokens
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
 
-                // Require authentication for ALL routes through the API Gateway
-                .authorizeExchange(exchange->exchange.anyExchange().authenticated())
+                // Require authentication for ALL routes through the API Gateway,
+                // except the health check; the Prometheus scrape only on the management port
+                .authorizeExchange(exchange->exchange
+                        .pathMatchers("/actuator/health").permitAll()
+                        .matchers(new AndServerWebExchangeMatcher(
+                                ServerWebExchangeMatchers.pathMatchers("/actuator/prometheus"),
+                                onPort(managementPort))).permitAll()
+                        .pathMatchers("/actuator/**").denyAll()
+                        .anyExchange().authenticated())
 
                 // Configure the Gateway as an OAuth2 Resource Server using JWT validation
                 // Spring Security automatically validates the token using the public keys from Keycloak
@@ -60,12 +77,23 @@ public class SecurityConfig {
                 .build();
     }
 
+    // Requests that arrived on the given port; none if the actuator shares the public port (-1)
+    private static ServerWebExchangeMatcher onPort(int port){
+        return exchange->{
+            InetSocketAddress localAddress=exchange.getRequest().getLocalAddress();
+            return port>0 && localAddress!=null && localAddress.getPort()==port
+                    ? ServerWebExchangeMatcher.MatchResult.match()
+                    : ServerWebExchangeMatcher.MatchResult.notMatch();
+        };
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource(){
         CorsConfiguration corsConfiguration=new CorsConfiguration();
         corsConfiguration.setAllowedOrigins(List.of("http://localhost:5173"));
         corsConfiguration.setAllowedMethods(Arrays.asList("POST","GET","PUT","DELETE","OPTIONS"));
-        corsConfiguration.setAllowedHeaders(Arrays.asList("Authorization","Content-Type","X-User-ID"));
+        corsConfiguration.setAllowedHeaders(Arrays.asList("Authorization","Content-Type","X-User-ID",CorrelationIdFilter.HEADER));
+        corsConfiguration.setExposedHeaders(List.of(CorrelationIdFilter.HEADER));
         corsConfiguration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source=new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/api/v1/**",corsConfiguration);
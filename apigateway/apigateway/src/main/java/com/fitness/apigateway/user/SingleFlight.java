@@ -0,0 +1,87 @@
+package com.fitness.apigateway.user;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * -----------------------------------------------------------
+ * 🔹 SingleFlight
+ * -----------------------------------------------------------
+ * Collapses concurrent calls for the same key into one
+ * in-flight upstream call.
+ *
+ * The first caller for a key starts the call, every caller that
+ * arrives while it is still running subscribes to the same
+ * result. Once the call terminates the key is released, so the
+ * next caller triggers a fresh call.
+ *
+ * A caller cancelling its subscription never cancels the shared
+ * call, the other waiters still receive the result.
+ * -----------------------------------------------------------
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * Runs the call for the given key, or joins the one already in flight.
+     *
+     * @param key  identifies the call (e.g. the Keycloak user ID)
+     * @param call supplies the upstream call, invoked only by the first caller
+     * @return Mono emitting the shared result
+     */
+    public Mono<T> execute(String key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            CompletableFuture<T> created = new CompletableFuture<>();
+            CompletableFuture<T> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                collapsed.incrementAndGet();
+                return Mono.fromFuture(existing, true);
+            }
+
+            Mono<T> upstream;
+            try {
+                upstream = call.get();
+            } catch (RuntimeException e) {
+                upstream = Mono.error(e);
+            }
+            // The key is released before waiters are completed, so a caller that
+            // arrives after the result never joins an already finished call
+            upstream.subscribe(
+                    value -> {
+                        inFlight.remove(key, created);
+                        created.complete(value);
+                    },
+                    error -> {
+                        inFlight.remove(key, created);
+                        created.completeExceptionally(error);
+                    },
+                    () -> {
+                        inFlight.remove(key, created);
+                        created.complete(null);
+                    });
+            return Mono.fromFuture(created, true);
+        });
+    }
+
+    /**
+     * @return number of calls currently in flight
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return number of callers that joined an already running call
+     */
+    public long collapsedCount() {
+        return collapsed.get();
+    }
+}
@@ -1,5 +1,9 @@
 package com.fitness.apigateway.user;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +28,10 @@ import reactor.core.publisher.Mono;
  *     but not yet present in the User Service).
  *
  * It returns Mono<T> since WebFlux is reactive and async.
+ *
+ * Users confirmed to exist are kept in ValidatedUserCache, and
+ * concurrent validations of the same user share one in-flight
+ * call, so a known user costs no round trip to the User Service.
  * -----------------------------------------------------------
  */
 
@@ -41,12 +49,43 @@ public class UserService {
     @Autowired
     private WebClient userWebClient;
 
+    @Autowired
+    private ValidatedUserCache validatedUserCache;
+
+    @Autowired
+    private UserValidationBatcher userValidationBatcher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Collapses concurrent cache misses for the same user into one HTTP call
+    private final SingleFlight<Boolean> validations = new SingleFlight<>();
+
+    // Keeps at most one registration per Keycloak ID in flight
+    private final SingleFlight<RegisterResponse> registrations = new SingleFlight<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        FunctionCounter.builder("gateway.user.validation.collapsed", validations, SingleFlight::collapsedCount)
+                .description("Validations that joined an already in-flight call")
+                .register(meterRegistry);
+        Gauge.builder("gateway.user.validation.in-flight", validations, SingleFlight::inFlightCount)
+                .description("Validation calls currently in flight")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.user.registration.collapsed", registrations, SingleFlight::collapsedCount)
+                .description("Registrations that joined an already in-flight call")
+                .register(meterRegistry);
+    }
+
     /**
      * -----------------------------------------------------------
      * ✅ validateUser(String userId)
      * -----------------------------------------------------------
      * Calls the User Service to check whether a given Keycloak
      * user ID exists in the User database.
+     * Answers from ValidatedUserCache when the user is already known,
+     * otherwise the lookup is coalesced with other validations into
+     * one batch call by UserValidationBatcher.
      *
      * @param userId The unique Keycloak user identifier
      * @return Mono<Boolean> indicating whether user exists
@@ -54,28 +93,15 @@ public class UserService {
      */
 
     public Mono<Boolean> validateUser(String userId) {
-        log.info("Calling user service for {}",userId);
-        try {
-            return userWebClient.get()
-                    // Dynamically inject the userId into the request path
-                    .uri("/api/v1/users/{userId}/validate", userId)
-                    // Perform GET call and retrieve the response body as Boolean
-                    .retrieve()
-                    .bodyToMono(Boolean.class)
-                    // Error handling: map different HTTP errors to meaningful messages
-                    .onErrorResume(WebClientResponseException.class,e->{
-                        if(e.getStatusCode()== HttpStatus.NOT_FOUND){
-                            return Mono.error(new RuntimeException("User not found: "+userId));
-                        }
-                        else if(e.getStatusCode()== HttpStatus.BAD_REQUEST){
-                            return Mono.error(new RuntimeException("Invalid request: "+userId));
-                        }
-                        return Mono.error(new RuntimeException("Unexpected error"));
-                    });
-        } catch (WebClientResponseException e) {
-            e.printStackTrace();
+        if(validatedUserCache.contains(userId)){
+            return Mono.just(true);
         }
-        return null;
+        return validations.execute(userId, () -> userValidationBatcher.validate(userId)
+                .doOnNext(exist -> {
+                    if(exist){
+                        validatedUserCache.put(userId);
+                    }
+                }));
     }
 
     /**
@@ -84,6 +110,12 @@ public class UserService {
      * -----------------------------------------------------------
      * Calls the User Service to register a new user based on
      * Keycloak token details (email, name, etc.).
+     * A successful registration marks the user as known in
+     * ValidatedUserCache.
+     *
+     * When a new user's first requests arrive in parallel they all
+     * miss validation; only one registration per Keycloak ID is sent,
+     * the other requests wait on its result without blocking.
      *
      * @param registerRequest DTO containing registration info
      * @return Mono<RegisterResponse> with user data after creation
@@ -91,25 +123,27 @@ public class UserService {
      */
 
     public Mono<RegisterResponse> registerUser(RegisterRequest registerRequest) {
+        String key=registerRequest.getKeycloakId()!=null ? registerRequest.getKeycloakId() : registerRequest.getEmail();
+        return registrations.execute(key, () -> sendRegistration(registerRequest));
+    }
+
+    private Mono<RegisterResponse> sendRegistration(RegisterRequest registerRequest) {
         log.info("Calling user service for {}",registerRequest.getEmail());
-        try {
-            return userWebClient.post()
-                    // User registration endpoint in User Service
-                    .uri("/api/v1/users/register")
-                    // Send user details in the request body
-                    .bodyValue(registerRequest)
-                    // Retrieve response and map to RegisterResponse DTO
-                    .retrieve()
-                    .bodyToMono(RegisterResponse.class)
-                    .onErrorResume(WebClientResponseException.class,e->{
-                       if(e.getStatusCode()== HttpStatus.BAD_REQUEST){
-                            return Mono.error(new RuntimeException("Bad request: "+e.getMessage()));
-                        }
-                        return Mono.error(new RuntimeException("Unexpected error "+ e.getMessage()));
-                    });
-        } catch (WebClientResponseException e) {
-            e.printStackTrace();
-        }
-        return null;
+        return userWebClient.post()
+                // User registration endpoint in User Service
+                .uri("/api/v1/users/register")
+                // Send user details in the request body
+                .bodyValue(registerRequest)
+                // Retrieve response and map to RegisterResponse DTO
+                .retrieve()
+                .bodyToMono(RegisterResponse.class)
+                .doOnNext(response -> validatedUserCache.put(registerRequest.getKeycloakId()))
+                .onErrorResume(WebClientResponseException.class,e->{
+                    log.warn("User service rejected the registration of {} with {}",registerRequest.getEmail(),e.getStatusCode(),e);
+                    if(e.getStatusCode()== HttpStatus.BAD_REQUEST){
+                        return Mono.error(new RuntimeException("Bad request: "+e.getMessage(),e));
+                    }
+                    return Mono.error(new RuntimeException("Unexpected error "+ e.getMessage(),e));
+                });
     }
 }
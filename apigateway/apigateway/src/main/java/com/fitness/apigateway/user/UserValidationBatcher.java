@@ -0,0 +1,114 @@
+package com.fitness.apigateway.user;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * -----------------------------------------------------------
+ * 🔹 UserValidationBatcher
+ * -----------------------------------------------------------
+ * Reactive micro-batcher in front of the User Service's batch
+ * validation endpoint (POST /api/v1/users/validate).
+ *
+ * Validations arriving within a short window (a few ms) are
+ * coalesced into one call that sends the set of Keycloak IDs
+ * and receives the subset that exists. A batch is flushed as
+ * soon as it is full or the window elapses, whichever comes
+ * first, so an idle Gateway adds at most one window of latency.
+ * -----------------------------------------------------------
+ */
+@Component
+@Slf4j
+public class UserValidationBatcher {
+
+    private static final ParameterizedTypeReference<Set<String>> USER_IDS = new ParameterizedTypeReference<>() {};
+
+    private final WebClient userWebClient;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final DistributionSummary batchSizes;
+
+    private final Sinks.Many<PendingValidation> pending = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable flusher;
+
+    public UserValidationBatcher(WebClient userWebClient,
+                                 @Value("${gateway.user-validation.batch.max-size:200}") int maxBatchSize,
+                                 @Value("${gateway.user-validation.batch.window:5ms}") Duration window,
+                                 MeterRegistry meterRegistry) {
+        this.userWebClient = userWebClient;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.batchSizes = DistributionSummary.builder("gateway.user.validation.batch.size")
+                .description("User IDs sent per batch validation call")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        flusher = pending.asFlux()
+                .bufferTimeout(maxBatchSize, window)
+                .flatMap(this::flush)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        flusher.dispose();
+    }
+
+    /**
+     * Queues the user ID for the next batch.
+     *
+     * @param userId The unique Keycloak user identifier
+     * @return Mono<Boolean> indicating whether user exists
+     */
+    public Mono<Boolean> validate(String userId) {
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> result = Sinks.one();
+            // Callers emit from many threads at once, so retry on non-serialized emission
+            pending.emitNext(new PendingValidation(userId, result), Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(50)));
+            return result.asMono();
+        });
+    }
+
+    private Mono<Void> flush(List<PendingValidation> batch) {
+        Set<String> userIds = new LinkedHashSet<>();
+        batch.forEach(validation -> userIds.add(validation.userId()));
+        batchSizes.record(userIds.size());
+        log.debug("Validating {} users in one call", userIds.size());
+
+        return userWebClient.post()
+                .uri("/api/v1/users/validate")
+                .bodyValue(userIds)
+                .retrieve()
+                .bodyToMono(USER_IDS)
+                .defaultIfEmpty(Set.of())
+                .doOnNext(existing -> batch.forEach(validation ->
+                        validation.result().tryEmitValue(existing.contains(validation.userId()))))
+                .onErrorResume(e -> {
+                    log.error("Batch user validation failed: {}", e.getMessage());
+                    RuntimeException error = new RuntimeException("Unexpected error");
+                    batch.forEach(validation -> validation.result().tryEmitError(error));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record PendingValidation(String userId, Sinks.One<Boolean> result) {
+    }
+}
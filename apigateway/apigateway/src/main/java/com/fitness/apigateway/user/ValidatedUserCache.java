@@ -0,0 +1,63 @@
+package com.fitness.apigateway.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * -----------------------------------------------------------
+ * 🔹 ValidatedUserCache
+ * -----------------------------------------------------------
+ * Bounded, TTL-evicting in-memory set of Keycloak user IDs
+ * (the JWT "sub" claim) that are known to exist in the
+ * User Service.
+ *
+ * A hit lets the Gateway skip the validation round trip to
+ * USERSERVICE. Only positive answers are cached: an unknown
+ * user is always re-checked so that a registration done
+ * elsewhere is picked up.
+ *
+ * Hit/miss/eviction statistics are published to the
+ * MeterRegistry as "cache.*" meters tagged cache=validatedUsers.
+ * -----------------------------------------------------------
+ */
+@Component
+public class ValidatedUserCache {
+
+    private final Cache<String, Boolean> knownUsers;
+
+    public ValidatedUserCache(@Value("${gateway.user-cache.maximum-size:100000}") long maximumSize,
+                              @Value("${gateway.user-cache.ttl:10m}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.knownUsers = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, knownUsers, "validatedUsers");
+    }
+
+    /**
+     * @param userId Keycloak user identifier
+     * @return true if the user was recently confirmed to exist
+     */
+    public boolean contains(String userId) {
+        return knownUsers.getIfPresent(userId) != null;
+    }
+
+    /**
+     * Records that the user exists in the User Service.
+     *
+     * @param userId Keycloak user identifier
+     */
+    public void put(String userId) {
+        if (userId != null) {
+            knownUsers.put(userId, Boolean.TRUE);
+        }
+    }
+}
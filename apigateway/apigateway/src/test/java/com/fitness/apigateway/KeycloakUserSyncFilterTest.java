@@ -0,0 +1,62 @@
+package com.fitness.apigateway;
+
+import com.fitness.apigateway.user.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeycloakUserSyncFilterTest {
+
+	private final UserService userService = mock(UserService.class);
+	private final AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+	private final WebFilterChain chain = exchange -> {
+		forwarded.set(exchange.getRequest());
+		return Mono.empty();
+	};
+
+	@Test
+	void clientSuppliedUserIdIsReplacedByTheTokenSubject() {
+		when(userService.validateUser("keycloak-user")).thenReturn(Mono.just(true));
+		Jwt jwt = Jwt.withTokenValue("token").header("alg", "none").subject("keycloak-user").build();
+
+		filter().filter(exchange("someone-else"), chain)
+				.contextWrite(ReactiveSecurityContextHolder.withAuthentication(new JwtAuthenticationToken(jwt)))
+				.block();
+
+		assertEquals("keycloak-user", forwarded.get().getHeaders().getFirst("X-User-ID"));
+		assertEquals(1, forwarded.get().getHeaders().get("X-User-ID").size());
+	}
+
+	@Test
+	void unauthenticatedRequestsLoseTheirUserId() {
+		filter().filter(exchange("someone-else"), chain).block();
+
+		assertNull(forwarded.get().getHeaders().getFirst("X-User-ID"));
+	}
+
+	private KeycloakUserSyncFilter filter() {
+		KeycloakUserSyncFilter filter = new KeycloakUserSyncFilter();
+		ReflectionTestUtils.setField(filter, "userService", userService);
+		ReflectionTestUtils.setField(filter, "meterRegistry", new SimpleMeterRegistry());
+		return filter;
+	}
+
+	private MockServerWebExchange exchange(String userId) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/activity/activities").header("X-User-ID", userId));
+	}
+}
@@ -0,0 +1,86 @@
+package com.fitness.apigateway;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+@SpringJUnitConfig(SecurityConfigTest.Config.class)
+@TestPropertySource(properties = "management.server.port=8081")
+class SecurityConfigTest {
+
+	@Configuration
+	@Import(SecurityConfig.class)
+	static class Config {
+
+		@Bean
+		ReactiveJwtDecoder jwtDecoder() {
+			return mock(ReactiveJwtDecoder.class);
+		}
+	}
+
+	@Autowired
+	private WebFilterChainProxy securityFilterChain;
+
+	@Test
+	void prometheusIsScrapedOnTheManagementPort() {
+		assertTrue(forwarded(exchange("/actuator/prometheus", 8081)));
+	}
+
+	@Test
+	void prometheusIsNotServedOnThePublicPort() {
+		MockServerWebExchange exchange = exchange("/actuator/prometheus", 8080);
+
+		assertFalse(forwarded(exchange));
+		assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+	}
+
+	@Test
+	void otherActuatorEndpointsAreNotServedOnThePublicPort() {
+		assertFalse(forwarded(exchange("/actuator/metrics", 8080)));
+	}
+
+	@Test
+	void healthStaysOpen() {
+		assertTrue(forwarded(exchange("/actuator/health", 8080)));
+	}
+
+	@Test
+	void apiRoutesNeedAToken() {
+		MockServerWebExchange exchange = exchange("/api/v1/activity/activities", 8080);
+
+		assertFalse(forwarded(exchange));
+		assertEquals(HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+	}
+
+	private boolean forwarded(MockServerWebExchange exchange) {
+		AtomicBoolean forwarded = new AtomicBoolean();
+		securityFilterChain.filter(exchange, filtered -> {
+			forwarded.set(true);
+			return Mono.empty();
+		}).block();
+		return forwarded.get();
+	}
+
+	private MockServerWebExchange exchange(String path, int port) {
+		return MockServerWebExchange.from(MockServerHttpRequest.get(path)
+				.localAddress(new InetSocketAddress("127.0.0.1", port)));
+	}
+}
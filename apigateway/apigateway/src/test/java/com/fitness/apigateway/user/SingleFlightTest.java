@@ -0,0 +1,79 @@
+package com.fitness.apigateway.user;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+	@Test
+	void parallelFirstLoginsShareOneRegistration() {
+		SingleFlight<String> registrations = new SingleFlight<>();
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		int logins = 500;
+
+		List<String> results = Flux.range(0, logins)
+				.parallel(32)
+				.runOn(Schedulers.parallel())
+				.flatMap(i -> registrations.execute("keycloak-user", () -> {
+					upstreamCalls.incrementAndGet();
+					return Mono.delay(Duration.ofMillis(200)).thenReturn("registered");
+				}))
+				.sequential()
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+		assertEquals(1, upstreamCalls.get());
+		assertEquals(logins, results.size());
+		assertTrue(results.stream().allMatch("registered"::equals));
+		assertEquals(logins - 1, registrations.collapsedCount());
+		assertEquals(0, registrations.inFlightCount());
+	}
+
+	@Test
+	void differentUsersAreNotCollapsed() {
+		SingleFlight<String> registrations = new SingleFlight<>();
+		AtomicInteger upstreamCalls = new AtomicInteger();
+
+		List<String> results = Flux.range(0, 100)
+				.flatMap(i -> registrations.execute("user-" + i, () -> {
+					upstreamCalls.incrementAndGet();
+					return Mono.delay(Duration.ofMillis(50)).thenReturn("user-" + i);
+				}))
+				.collectList()
+				.block(Duration.ofSeconds(10));
+
+		assertEquals(100, upstreamCalls.get());
+		assertEquals(100, results.size());
+	}
+
+	@Test
+	void keyIsReleasedAfterCompletionAndFailure() {
+		SingleFlight<String> registrations = new SingleFlight<>();
+		AtomicInteger upstreamCalls = new AtomicInteger();
+
+		Mono<String> failing = registrations.execute("keycloak-user", () -> {
+			upstreamCalls.incrementAndGet();
+			return Mono.error(new RuntimeException("Unexpected error"));
+		});
+		assertEquals("Unexpected error",
+				failing.onErrorResume(e -> Mono.just(e.getMessage())).block(Duration.ofSeconds(5)));
+
+		String retried = registrations.execute("keycloak-user", () -> {
+			upstreamCalls.incrementAndGet();
+			return Mono.just("registered");
+		}).block(Duration.ofSeconds(5));
+
+		assertEquals("registered", retried);
+		assertEquals(2, upstreamCalls.get());
+		assertEquals(0, registrations.inFlightCount());
+	}
+}
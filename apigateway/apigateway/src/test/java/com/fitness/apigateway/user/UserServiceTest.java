@@ -0,0 +1,62 @@
+package com.fitness.apigateway.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class UserServiceTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ValidatedUserCache validatedUserCache = new ValidatedUserCache(100, Duration.ofMinutes(1), meterRegistry);
+
+	@Test
+	void aRejectedRegistrationFailsTheMonoAndIsNotCached() {
+		UserService userService = userService(HttpStatus.BAD_REQUEST);
+
+		StepVerifier.create(userService.registerUser(request("kc-1")))
+				.expectErrorSatisfies(e -> {
+					assertInstanceOf(RuntimeException.class, e);
+					assertInstanceOf(WebClientResponseException.BadRequest.class, e.getCause());
+				})
+				.verify();
+		assertFalse(validatedUserCache.contains("kc-1"));
+	}
+
+	@Test
+	void aFailingUserServiceFailsTheMono() {
+		UserService userService = userService(HttpStatus.SERVICE_UNAVAILABLE);
+
+		StepVerifier.create(userService.registerUser(request("kc-1")))
+				.expectErrorSatisfies(e -> assertInstanceOf(WebClientResponseException.ServiceUnavailable.class, e.getCause()))
+				.verify();
+	}
+
+	private UserService userService(HttpStatus status) {
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> Mono.just(ClientResponse.create(status).build()))
+				.build();
+		UserService userService = new UserService();
+		ReflectionTestUtils.setField(userService, "userWebClient", webClient);
+		ReflectionTestUtils.setField(userService, "validatedUserCache", validatedUserCache);
+		ReflectionTestUtils.setField(userService, "meterRegistry", meterRegistry);
+		return userService;
+	}
+
+	private RegisterRequest request(String keycloakId) {
+		RegisterRequest request = new RegisterRequest();
+		request.setKeycloakId(keycloakId);
+		request.setEmail("ada@example.com");
+		return request;
+	}
+}
@@ -0,0 +1,85 @@
+package com.fitness.apigateway.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserValidationBatcherTest {
+
+	private final AtomicInteger batchCalls = new AtomicInteger();
+	private UserValidationBatcher batcher;
+
+	@AfterEach
+	void stop() {
+		batcher.stop();
+	}
+
+	@Test
+	void validationsWithinTheWindowShareOneCall() {
+		batcher = batcher(HttpStatus.OK, "[\"user-1\",\"user-3\"]");
+
+		List<Boolean> results = Flux.just("user-1", "user-2", "user-3")
+				.flatMap(userId -> batcher.validate(userId).map(exists -> userId + "=" + exists))
+				.collectSortedList()
+				.block(Duration.ofSeconds(5))
+				.stream()
+				.map(result -> result.endsWith("true"))
+				.toList();
+
+		assertEquals(List.of(true, false, true), results);
+		assertEquals(1, batchCalls.get());
+	}
+
+	@Test
+	void burstIsSplitIntoFullBatches() {
+		batcher = batcher(HttpStatus.OK, "[]");
+
+		List<Boolean> results = Flux.range(0, 1000)
+				.flatMap(i -> batcher.validate("user-" + i), 1000)
+				.collectList()
+				.block(Duration.ofSeconds(5));
+
+		assertEquals(1000, results.size());
+		assertTrue(results.stream().noneMatch(Boolean::booleanValue));
+		assertTrue(batchCalls.get() <= 10, "expected at most 10 batch calls but was " + batchCalls.get());
+	}
+
+	@Test
+	void failedBatchFailsEveryWaiter() {
+		batcher = batcher(HttpStatus.SERVICE_UNAVAILABLE, "");
+
+		assertThrows(RuntimeException.class, () -> batcher.validate("user-1").block(Duration.ofSeconds(5)));
+		assertEquals(1, batchCalls.get());
+	}
+
+	private UserValidationBatcher batcher(HttpStatus status, String body) {
+		WebClient webClient = WebClient.builder()
+				.exchangeFunction(request -> {
+					batchCalls.incrementAndGet();
+					return Mono.just(ClientResponse.create(status)
+							.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+							.body(body)
+							.build());
+				})
+				.build();
+		UserValidationBatcher userValidationBatcher =
+				new UserValidationBatcher(webClient, 200, Duration.ofMillis(20), new SimpleMeterRegistry());
+		userValidationBatcher.start();
+		return userValidationBatcher;
+	}
+}
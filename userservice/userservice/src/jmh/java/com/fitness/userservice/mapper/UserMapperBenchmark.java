@@ -0,0 +1,76 @@
+package com.fitness.userservice.mapper;
+
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisterResponse;
+import com.fitness.userservice.models.User;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation (run with -prof gc) of the user mappings, with the generated
+ * UserMapper and with a default ModelMapper as the service used it before
+ * MapStruct (including the setId(null) its fuzzy matching needed on register).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserMapperBenchmark {
+
+	private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+	private final ModelMapper modelMapper = new ModelMapper();
+	private RegisterRequest request;
+	private User user;
+
+	@Setup
+	public void setUp() {
+		request = new RegisterRequest();
+		request.setKeycloakId("8f14e45f-ceea-467f-a0e6-0e1e4a5c7d21");
+		request.setFirstName("Ada");
+		request.setLastName("Lovelace");
+		request.setEmail("ada@example.com");
+		request.setPassword("dummy@123");
+
+		user = userMapper.toUser(request);
+		user.setId("0b7c8a54-7f1e-4d8e-9a51-0c2a8e2f6b11");
+		user.setCreatedAt(LocalDate.of(2025, 3, 1));
+		user.setUpdatedAt(LocalDate.of(2025, 3, 1));
+	}
+
+	@Benchmark
+	public User toUserMapStruct() {
+		return userMapper.toUser(request);
+	}
+
+	@Benchmark
+	public User toUserModelMapper() {
+		User mapped = modelMapper.map(request, User.class);
+		mapped.setId(null);
+		return mapped;
+	}
+
+	@Benchmark
+	public RegisterResponse toResponseMapStruct() {
+		return userMapper.toResponse(user);
+	}
+
+	@Benchmark
+	public RegisterResponse toResponseModelMapper() {
+		return modelMapper.map(user, RegisterResponse.class);
+	}
+}
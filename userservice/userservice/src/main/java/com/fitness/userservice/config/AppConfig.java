@@ -1,13 +0,0 @@
-package com.fitness.userservice.config;
-
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.modelmapper.ModelMapper;
-
-@Configuration
-public class AppConfig {
-
-    @Bean
-    public ModelMapper modelMapper(){return new ModelMapper();}
-
-}
@@ -0,0 +1,65 @@
+package com.fitness.userservice.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * One-off cleanup for databases created before fitness_users.keycloak_id was
+ * unique: Hibernate's ddl-auto update cannot add the constraint while a
+ * keycloak_id is registered twice, so all but the earliest registration of each
+ * keycloak_id are deleted first, and every deleted row is logged.
+ *
+ * Off unless userservice.migration.dedupe-keycloak-ids is true. Turn it on for
+ * one start of an affected database, check the log, then turn it off again.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "userservice.migration.dedupe-keycloak-ids", havingValue = "true")
+@Slf4j
+@RequiredArgsConstructor
+public class KeycloakIdDeduplication implements InitializingBean {
+
+    static final String DUPLICATES_QUERY="""
+            SELECT dup.id, dup.keycloak_id, dup.email FROM fitness_users dup
+            WHERE EXISTS (SELECT 1 FROM fitness_users keep
+                          WHERE keep.keycloak_id = dup.keycloak_id
+                            AND (COALESCE(keep.created_at, DATE '9999-12-31') < COALESCE(dup.created_at, DATE '9999-12-31')
+                                 OR (COALESCE(keep.created_at, DATE '9999-12-31') = COALESCE(dup.created_at, DATE '9999-12-31')
+                                     AND keep.id < dup.id)))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Runs the cleanup before the EntityManagerFactory, and with it the schema update, is created.
+     */
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor keycloakIdDeduplicationFirst(){
+        return new EntityManagerFactoryDependsOnPostProcessor(KeycloakIdDeduplication.class);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> ids;
+        try{
+            ids=jdbcTemplate.query(DUPLICATES_QUERY,(rs,rowNum)->{
+                String id=rs.getString("id");
+                log.warn("Deleting duplicate registration {} of keycloak_id {} ({})",id,rs.getString("keycloak_id"),rs.getString("email"));
+                return id;
+            });
+        } catch (BadSqlGrammarException e) {
+            log.info("fitness_users does not exist yet, no duplicate keycloak_id rows to delete");
+            return;
+        }
+        jdbcTemplate.batchUpdate("DELETE FROM fitness_users WHERE id = ?",ids,500,(ps,id)->ps.setString(1,id));
+        log.info("Deleted {} duplicate keycloak_id rows from fitness_users",ids.size());
+    }
+}
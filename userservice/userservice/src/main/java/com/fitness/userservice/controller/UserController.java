@@ -10,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -34,4 +35,9 @@ public class UserController {
         return ResponseEntity.ok(userService.validateUser(userId));
     }
 
+    @PostMapping("/validate")
+    public ResponseEntity<Set<String>> validateUsers(@RequestBody Set<String> userIds){
+        return ResponseEntity.ok(userService.validateUsers(userIds));
+    }
+
 }
@@ -0,0 +1,24 @@
+package com.fitness.userservice.mapper;
+
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisterResponse;
+import com.fitness.userservice.models.User;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+
+/**
+ * User mappings, generated at compile time by MapStruct (plain getter/setter calls, no reflection).
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING)
+public interface UserMapper {
+
+    // id and timestamps are assigned on insert; new users keep the default role
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "userRole", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    User toUser(RegisterRequest registerRequest);
+
+    RegisterResponse toResponse(User user);
+}
@@ -4,11 +4,21 @@ import com.fitness.userservice.models.User;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.Set;
 
 public interface UserRepository extends JpaRepository<User,String> {
    Boolean existsByEmail(String email);
 
    Boolean existsByKeycloakId(String userId);
 
+   User findByKeycloakId(String keycloakId);
+
+   @Query("select u.keycloakId from User u where u.keycloakId in :keycloakIds")
+   Set<String> findExistingKeycloakIds(@Param("keycloakIds") Collection<String> keycloakIds);
+
    User findByEmail(@NotBlank(message = "Email is required") @Email(message = "Invalid email format") String email);
 }
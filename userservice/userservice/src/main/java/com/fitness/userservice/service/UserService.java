@@ -4,10 +4,12 @@ import com.fitness.userservice.dto.RegisterRequest;
 import com.fitness.userservice.dto.RegisterResponse;
 
 import java.util.List;
+import java.util.Set;
 
 public interface UserService {
 
     public RegisterResponse register(RegisterRequest userRequest);
     public List<RegisterResponse> getAllUsers();
     public Boolean validateUser(String userId);
+    public Set<String> validateUsers(Set<String> userIds);
 }
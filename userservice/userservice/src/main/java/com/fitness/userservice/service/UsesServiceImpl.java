@@ -2,15 +2,17 @@ package com.fitness.userservice.service;
 
 import com.fitness.userservice.dto.RegisterRequest;
 import com.fitness.userservice.dto.RegisterResponse;
+import com.fitness.userservice.mapper.UserMapper;
 import com.fitness.userservice.models.User;
 import com.fitness.userservice.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.modelmapper.ModelMapper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -20,22 +22,41 @@ public class UsesServiceImpl implements UserService{
     private UserRepository userRepository;
 
     @Autowired
-    private ModelMapper modelmapper;
+    private UserMapper userMapper;
 
+    /**
+     * Idempotent registration: the insert is attempted directly and the unique
+     * email/keycloakId constraints reject a duplicate, instead of a racy
+     * existsByEmail check followed by save. A rejected insert means the user is
+     * already registered, so the stored user is returned.
+     */
     @Override
     public RegisterResponse register(RegisterRequest userRequest) {
 
-        if(userRepository.existsByEmail(userRequest.getEmail())){
-            User existingUser=userRepository.findByEmail(userRequest.getEmail());
-            RegisterResponse registerResponse=modelmapper.map(existingUser,RegisterResponse.class);
+        User user=userMapper.toUser(userRequest);
+        try{
+            User savedUser=userRepository.saveAndFlush(user);
+            RegisterResponse registerResponse=userMapper.toResponse(savedUser);
+            return registerResponse;
+        } catch (DataIntegrityViolationException e) {
+            User existingUser=findExistingUser(userRequest);
+            if(existingUser==null){
+                throw e;
+            }
+            log.info("User already registered: {}",userRequest.getEmail());
+            RegisterResponse registerResponse=userMapper.toResponse(existingUser);
             return registerResponse;
         }
+    }
 
-        User user=modelmapper.map(userRequest,User.class);
-        user.setId(null);
-        User savedUser=userRepository.save(user);
-        RegisterResponse registerResponse=modelmapper.map(savedUser,RegisterResponse.class);
-        return registerResponse;
+    private User findExistingUser(RegisterRequest userRequest) {
+        if(userRequest.getKeycloakId()!=null){
+            User existingUser=userRepository.findByKeycloakId(userRequest.getKeycloakId());
+            if(existingUser!=null){
+                return existingUser;
+            }
+        }
+        return userRepository.findByEmail(userRequest.getEmail());
     }
 
     @Override
@@ -44,7 +65,7 @@ public class UsesServiceImpl implements UserService{
         List<User>users=userRepository.findAll();
 
         List<RegisterResponse>userResponses=new ArrayList<>();
-        userResponses= users.stream().map(user -> modelmapper.map(user,RegisterResponse.class)).toList();
+        userResponses= users.stream().map(user -> userMapper.toResponse(user)).toList();
         return userResponses;
     }
 
@@ -52,4 +73,15 @@ public class UsesServiceImpl implements UserService{
     public Boolean validateUser(String userId) {
         return userRepository.existsByKeycloakId(userId);
     }
+
+    /**
+     * Resolves a whole batch with one indexed IN query on keycloakId.
+     */
+    @Override
+    public Set<String> validateUsers(Set<String> userIds) {
+        if(userIds==null || userIds.isEmpty()){
+            return Set.of();
+        }
+        return userRepository.findExistingKeycloakIds(userIds);
+    }
 }
@@ -0,0 +1,43 @@
+package com.fitness.userservice.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JdbcTest
+class KeycloakIdDeduplicationTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void keepsTheEarliestRegistrationOfEachKeycloakId() {
+		jdbcTemplate.execute("CREATE TABLE fitness_users (id VARCHAR(36) PRIMARY KEY, keycloak_id VARCHAR(255), email VARCHAR(255), created_at DATE)");
+		insert("a", "kc-1", "2025-01-02");
+		insert("b", "kc-1", "2025-01-01");
+		insert("c", "kc-1", null);
+		insert("d", "kc-2", "2025-01-01");
+		insert("e", "kc-2", "2025-01-01");
+		insert("f", "kc-3", null);
+
+		new KeycloakIdDeduplication(jdbcTemplate).afterPropertiesSet();
+
+		assertEquals(List.of("b", "d", "f"), jdbcTemplate.queryForList("SELECT id FROM fitness_users ORDER BY id", String.class));
+	}
+
+	@Test
+	void doesNothingBeforeTheTableExists() {
+		new KeycloakIdDeduplication(jdbcTemplate).afterPropertiesSet();
+	}
+
+	private void insert(String id, String keycloakId, String createdAt) {
+		jdbcTemplate.update("INSERT INTO fitness_users (id, keycloak_id, email, created_at) VALUES (?, ?, ?, ?)",
+				id, keycloakId, id + "@example.com", createdAt == null ? null : Date.valueOf(createdAt));
+	}
+}
@@ -0,0 +1,50 @@
+package com.fitness.userservice.mapper;
+
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisterResponse;
+import com.fitness.userservice.models.User;
+import com.fitness.userservice.models.UserRole;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UserMapperTest {
+
+	private final UserMapper userMapper = Mappers.getMapper(UserMapper.class);
+
+	@Test
+	void registrationLeavesIdAndRoleToTheEntity() {
+		RegisterRequest request = new RegisterRequest();
+		request.setKeycloakId("kc-1");
+		request.setFirstName("Ada");
+		request.setLastName("Lovelace");
+		request.setEmail("ada@example.com");
+		request.setPassword("secret1");
+
+		User user = userMapper.toUser(request);
+
+		assertNull(user.getId());
+		assertEquals("kc-1", user.getKeycloakId());
+		assertEquals("ada@example.com", user.getEmail());
+		assertEquals(UserRole.USER, user.getUserRole());
+	}
+
+	@Test
+	void responseCarriesTheStoredFields() {
+		User user = new User();
+		user.setId("3f0c1e4e-0000-0000-0000-000000000001");
+		user.setKeycloakId("kc-1");
+		user.setEmail("ada@example.com");
+		user.setCreatedAt(LocalDate.of(2025, 1, 2));
+
+		RegisterResponse response = userMapper.toResponse(user);
+
+		assertEquals("kc-1", response.getKeycloakId());
+		assertEquals("ada@example.com", response.getEmail());
+		assertEquals(LocalDate.of(2025, 1, 2), response.getCreatedAt());
+	}
+}
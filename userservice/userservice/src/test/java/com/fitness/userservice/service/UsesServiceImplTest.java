@@ -0,0 +1,90 @@
+package com.fitness.userservice.service;
+
+import com.fitness.userservice.dto.RegisterRequest;
+import com.fitness.userservice.dto.RegisterResponse;
+import com.fitness.userservice.mapper.UserMapperImpl;
+import com.fitness.userservice.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs register against an in-memory database, outside a test transaction so
+ * that every call commits on its own like it does behind the controller.
+ */
+@DataJpaTest
+@Import({UsesServiceImpl.class, UserMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsesServiceImplTest {
+
+	private static final int REGISTRATIONS = 8;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void concurrentRegistrationsOfOneUserReturnTheSameUser() throws Exception {
+		CyclicBarrier start = new CyclicBarrier(REGISTRATIONS);
+		ExecutorService executor = Executors.newFixedThreadPool(REGISTRATIONS);
+		try {
+			List<CompletableFuture<RegisterResponse>> registrations = IntStream.range(0, REGISTRATIONS)
+					.mapToObj(i -> CompletableFuture.supplyAsync(() -> {
+						try {
+							start.await(5, TimeUnit.SECONDS);
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+						return userService.register(request("kc-1", "ada@example.com"));
+					}, executor))
+					.toList();
+
+			List<RegisterResponse> responses = registrations.stream().map(CompletableFuture::join).distinct().toList();
+
+			assertEquals(1, responses.size());
+			assertEquals(1, userRepository.count());
+			assertEquals("kc-1", responses.get(0).getKeycloakId());
+		} finally {
+			executor.shutdownNow();
+			userRepository.deleteAll();
+		}
+	}
+
+	@Test
+	void aRepeatedRegistrationReturnsTheStoredUser() {
+		try {
+			RegisterResponse first = userService.register(request("kc-2", "grace@example.com"));
+			RegisterResponse second = userService.register(request("kc-2", "grace@example.com"));
+
+			assertEquals(first, second);
+			assertEquals(1, userRepository.count());
+		} finally {
+			userRepository.deleteAll();
+		}
+	}
+
+	private RegisterRequest request(String keycloakId, String email) {
+		RegisterRequest request = new RegisterRequest();
+		request.setKeycloakId(keycloakId);
+		request.setFirstName("Ada");
+		request.setLastName("Lovelace");
+		request.setEmail(email);
+		request.setPassword("secret1");
+		return request;
+	}
+}